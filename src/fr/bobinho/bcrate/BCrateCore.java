@@ -3,6 +3,7 @@ package fr.bobinho.bcrate;
 import co.aikar.commands.PaperCommandManager;
 import com.google.common.collect.ImmutableList;
 import fr.bobinho.bcrate.api.command.BCommand;
+import fr.bobinho.bcrate.api.location.BPlayerGrid;
 import fr.bobinho.bcrate.api.logger.BLogger;
 import fr.bobinho.bcrate.api.setting.BSetting;
 import fr.bobinho.bcrate.util.crate.CrateManager;
@@ -30,6 +31,7 @@ public final class BCrateCore extends JavaPlugin {
     private static BSetting playerSetting;
     private static BSetting crateSetting;
     private static BSetting langSetting;
+    private static BSetting configSetting;
 
     /**
      * Gets the plugin
@@ -94,6 +96,15 @@ public final class BCrateCore extends JavaPlugin {
         return langSetting;
     }
 
+    /**
+     * Gets the config setting
+     *
+     * @return the config setting
+     */
+    public static BSetting getConfigSetting() {
+        return configSetting;
+    }
+
     /**
      * Enables and initializes the plugin
      */
@@ -104,8 +115,12 @@ public final class BCrateCore extends JavaPlugin {
         keySetting = new BSetting("key");
         tagSetting = new BSetting("tag");
         playerSetting = new BSetting("player");
-        crateSetting = new BSetting("crate");
+        crateSetting = new BSetting("crate", false);
         langSetting = new BSetting("lang");
+        configSetting = new BSetting("config");
+
+        //Indexes the players before the crates are rendered
+        BPlayerGrid.register();
 
         KeyManager.register();
         TagManager.register();
@@ -113,6 +128,9 @@ public final class BCrateCore extends JavaPlugin {
         CrateManager.register();
         PrizeManager.register();
 
+        //Starts the write-behind of the data files
+        BSetting.startFlusher(configSetting.isInt("save-interval").orElse(100));
+
         //Registers commands
         registerCommands();
     }
@@ -124,11 +142,16 @@ public final class BCrateCore extends JavaPlugin {
     public void onDisable() {
         bLogger.info("Unloading the plugin...");
 
+        //Pending changes are saved synchronously by the managers
+        BSetting.stopFlusher();
+
         KeyManager.unregister();
         TagManager.unregister();
         PlayerManager.unregister();
         CrateManager.unregister();
         PrizeManager.unregister();
+
+        BPlayerGrid.unregister();
     }
 
     /**
@@ -4,7 +4,9 @@ import fr.bobinho.bcrate.api.location.BLocation;
 import fr.bobinho.bcrate.api.metadata.BMetadata;
 import fr.bobinho.bcrate.api.packet.BPacket;
 import fr.bobinho.bcrate.api.renderer.BRenderer;
+import fr.bobinho.bcrate.api.scheduler.BScheduler;
 import fr.bobinho.bcrate.api.validate.BValidate;
+import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.*;
 import net.minecraft.world.entity.Entity;
 import org.bukkit.Bukkit;
@@ -12,21 +14,34 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
 import javax.annotation.Nonnull;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Bobinho entity library
  */
 public class BEntity<T extends BEntity<T>> {
 
+    /**
+     * Entities whose metadata changed since the last flush
+     */
+    private static final Set<BEntity<?>> dirtyEntities = new LinkedHashSet<>();
+    private static boolean flushScheduled;
+
     /**
      * Fields
      */
     private final UUID uuid;
     private final Entity entity;
     private final BRenderer renderer;
+    private final Location position;
     private final BMetadata metadata = new BMetadata();
+    private boolean relativeMove;
+    private boolean metadataDirty;
+    private long sentX;
+    private long sentY;
+    private long sentZ;
+    private byte sentYaw;
+    private byte sentPitch;
 
 
     /**
@@ -42,7 +57,9 @@ public class BEntity<T extends BEntity<T>> {
         this.uuid = UUID.randomUUID();
         this.entity = entity;
         this.entity.setLocation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
-        this.renderer = new BRenderer(location, this::show, this::hide);
+        this.position = location.clone();
+        this.renderer = new BRenderer(position, this::show, this::hide);
+        this.updateSentPosition();
     }
 
     /**
@@ -58,7 +75,9 @@ public class BEntity<T extends BEntity<T>> {
         this.uuid = UUID.randomUUID();
         this.entity = entityType.create(location);
         this.entity.setLocation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
-        this.renderer = new BRenderer(location, this::show, this::hide);
+        this.position = location.clone();
+        this.renderer = new BRenderer(position, this::show, this::hide);
+        this.updateSentPosition();
     }
 
     /**
@@ -123,7 +142,71 @@ public class BEntity<T extends BEntity<T>> {
      * Updates the entity metadata
      */
     public final void updateMetadata() {
-        BPacket.send(new PacketPlayOutEntityMetadata(entity.getId(), entity.getDataWatcher(), true), renderer.getShownViewersAsPlayer());
+
+        //The full packet clears the dirty entries, it is sent to the same viewers as the pending changes
+        if (metadataDirty) {
+            metadataDirty = false;
+            dirtyEntities.remove(this);
+        }
+
+        BPacket.send(new PacketPlayOutEntityMetadata(entity.getId(), entity.getDataWatcher(), true), renderer.getShownPlayers());
+    }
+
+    /**
+     * Marks the entity metadata as changed, it is sent at the next flush
+     */
+    protected final void markMetadataDirty() {
+        if (metadataDirty) {
+            return;
+        }
+
+        metadataDirty = true;
+        dirtyEntities.add(this);
+
+        //Flushes at the next tick if nothing flushes before
+        if (!flushScheduled) {
+            flushScheduled = true;
+            BScheduler.syncScheduler().run(BEntity::flushAll);
+        }
+    }
+
+    /**
+     * Sends the changed metadata entries to the shown viewers
+     */
+    public final void flush() {
+        if (metadataDirty) {
+            dirtyEntities.remove(this);
+            sendDirtyMetadata();
+        }
+    }
+
+    /**
+     * Sends the changed metadata entries of all entities (main thread only)
+     */
+    public static void flushAll() {
+        flushScheduled = false;
+
+        if (dirtyEntities.isEmpty()) {
+            return;
+        }
+
+        List<BEntity<?>> entities = new ArrayList<>(dirtyEntities);
+        dirtyEntities.clear();
+        entities.forEach(BEntity::sendDirtyMetadata);
+    }
+
+    /**
+     * Sends the changed metadata entries only
+     */
+    private void sendDirtyMetadata() {
+        metadataDirty = false;
+
+        //If players are empty, they will receive the full metadata when shown
+        if (!renderer.isShown()) {
+            return;
+        }
+
+        BPacket.send(new PacketPlayOutEntityMetadata(entity.getId(), entity.getDataWatcher(), false), renderer.getShownPlayers());
     }
 
     /**
@@ -134,6 +217,7 @@ public class BEntity<T extends BEntity<T>> {
      */
     public final @Nonnull T setInvisible(boolean flag) {
         entity.setInvisible(flag);
+        markMetadataDirty();
 
         return (T) this;
     }
@@ -146,6 +230,7 @@ public class BEntity<T extends BEntity<T>> {
      */
     public final @Nonnull T setInvulnerable(boolean flag) {
         entity.setInvulnerable(flag);
+        markMetadataDirty();
 
         return (T) this;
     }
@@ -158,6 +243,7 @@ public class BEntity<T extends BEntity<T>> {
      */
     public final @Nonnull T setNoGravity(boolean flag) {
         entity.setNoGravity(flag);
+        markMetadataDirty();
 
         return (T) this;
     }
@@ -170,6 +256,19 @@ public class BEntity<T extends BEntity<T>> {
      */
     public final @Nonnull T setSilent(boolean flag) {
         entity.setSilent(flag);
+        markMetadataDirty();
+
+        return (T) this;
+    }
+
+    /**
+     * Sets the relative move status, small moves are then sent as deltas instead of teleports
+     *
+     * @param flag the relative move flag
+     * @return the entity
+     */
+    public final @Nonnull T setRelativeMove(boolean flag) {
+        relativeMove = flag;
 
         return (T) this;
     }
@@ -187,6 +286,9 @@ public class BEntity<T extends BEntity<T>> {
             return;
         }
 
+        //The full packet clears the dirty entries, the pending changes are sent to the current viewers first
+        flush();
+
         //Sends the show packet
         BPacket.send(new PacketPlayOutSpawnEntity(entity), players);
         BPacket.send(new PacketPlayOutEntityMetadata(entity.getId(), entity.getDataWatcher(), true), players);
@@ -328,25 +430,121 @@ public class BEntity<T extends BEntity<T>> {
     public void teleport(@Nonnull Location location, boolean rotation) {
         BValidate.notNull(location);
 
+        position.setWorld(location.getWorld());
+        teleport(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch(), rotation);
+    }
+
+    /**
+     * Teleports the entity in its world, without creating a location
+     *
+     * @param x     the x coordinate
+     * @param y     the y coordinate
+     * @param z     the z coordinate
+     * @param yaw   the yaw
+     * @param pitch the pitch
+     * @return the entity
+     */
+    public @Nonnull T teleport(double x, double y, double z, float yaw, float pitch) {
+        teleport(x, y, z, yaw, pitch, false);
+
+        return (T) this;
+    }
+
+    /**
+     * Teleports the entity in its world, without creating a location
+     *
+     * @param x        the x coordinate
+     * @param y        the y coordinate
+     * @param z        the z coordinate
+     * @param yaw      the yaw
+     * @param pitch    the pitch
+     * @param rotation the special rotation packet
+     */
+    public void teleport(double x, double y, double z, float yaw, float pitch, boolean rotation) {
+
         //Sets base fields
-        entity.setLocation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
-        renderer.setLocation(location);
+        entity.setLocation(x, y, z, yaw, pitch);
+        position.setX(x);
+        position.setY(y);
+        position.setZ(z);
+        position.setYaw(yaw);
+        position.setPitch(pitch);
+        renderer.setLocation(position);
+
+        //Position and rotation as encoded by the protocol
+        long previousX = sentX;
+        long previousY = sentY;
+        long previousZ = sentZ;
+        byte previousYaw = sentYaw;
+        byte previousPitch = sentPitch;
+        updateSentPosition();
 
         //If players are empty, no need to continue
-        if (renderer.getShownViewersAsPlayer().isEmpty()) {
+        if (!renderer.isShown()) {
             return;
         }
 
-        //Sends teleport packet
-        BPacket.send(new PacketPlayOutEntityTeleport(entity), renderer.getShownViewersAsPlayer());
+        //Sends move packet
+        Packet<?> packet = getMovePacket(sentX - previousX, sentY - previousY, sentZ - previousZ, sentYaw != previousYaw || sentPitch != previousPitch);
+        if (packet != null) {
+            BPacket.send(packet, renderer.getShownPlayers());
+        }
 
         //If special rotation needed
         if (rotation) {
-            byte yaw = (byte) (location.getYaw() * 256.0F / 360.0F);
+            byte headYaw = (byte) (yaw * 256.0F / 360.0F);
 
             //Sets head rotation.
-            BPacket.send(new PacketPlayOutEntityHeadRotation(entity, yaw), renderer.getShownViewersAsPlayer());
+            BPacket.send(new PacketPlayOutEntityHeadRotation(entity, headYaw), renderer.getShownPlayers());
         }
     }
 
+    /**
+     * Updates the position and rotation last sent to the viewers
+     */
+    private void updateSentPosition() {
+        sentX = Math.round(position.getX() * 4096.0D);
+        sentY = Math.round(position.getY() * 4096.0D);
+        sentZ = Math.round(position.getZ() * 4096.0D);
+        sentYaw = toAngle(position.getYaw());
+        sentPitch = toAngle(position.getPitch());
+    }
+
+    /**
+     * Converts an angle to its protocol encoding
+     *
+     * @param angle the angle (in degrees)
+     * @return the encoded angle
+     */
+    private static byte toAngle(float angle) {
+        return (byte) (int) Math.floor(angle * 256.0F / 360.0F);
+    }
+
+    /**
+     * Gets the packet moving the entity to its position
+     * Deltas are in 1/4096 blocks, a relative move is used only if they fit in a short
+     *
+     * @param dx     the x delta
+     * @param dy     the y delta
+     * @param dz     the z delta
+     * @param rotate true if the rotation changed, false otherwise
+     * @return the move packet, or null if the entity has not moved
+     */
+    private Packet<?> getMovePacket(long dx, long dy, long dz, boolean rotate) {
+        if (!relativeMove || dx != (short) dx || dy != (short) dy || dz != (short) dz) {
+            return new PacketPlayOutEntityTeleport(entity);
+        }
+
+        //Rotation only
+        if (dx == 0 && dy == 0 && dz == 0) {
+            return !rotate ? null : new PacketPlayOutEntity.PacketPlayOutEntityLook(entity.getId(), sentYaw, sentPitch, false);
+        }
+
+        if (rotate) {
+            return new PacketPlayOutEntity.PacketPlayOutRelEntityMoveLook(entity.getId(), (short) dx, (short) dy, (short) dz, sentYaw, sentPitch, false);
+        }
+
+        return new PacketPlayOutEntity.PacketPlayOutRelEntityMove(entity.getId(), (short) dx, (short) dy, (short) dz, false);
+    }
+
 }
\ No newline at end of file
@@ -2,9 +2,7 @@ package fr.bobinho.bcrate.api.entity.base;
 
 import fr.bobinho.bcrate.api.entity.BEntityType;
 import fr.bobinho.bcrate.api.entity.type.BArmoredEntity;
-import fr.bobinho.bcrate.api.packet.BPacket;
 import net.minecraft.core.Vector3f;
-import net.minecraft.network.protocol.game.PacketPlayOutEntityMetadata;
 import net.minecraft.world.entity.decoration.EntityArmorStand;
 import org.bukkit.Location;
 
@@ -38,8 +36,7 @@ public class BArmorStandEntity extends BArmoredEntity<BArmorStandEntity> {
      */
     public @Nonnull BArmorStandEntity setHeadPose(float x, float y, float z) {
         getEntity(EntityArmorStand.class).setHeadPose(new Vector3f(x, y, z));
-
-        BPacket.send(new PacketPlayOutEntityMetadata(getId(), getEntity().getDataWatcher(), true), getRenderer().getShownViewersAsPlayer());
+        markMetadataDirty();
 
         return this;
     }
@@ -54,8 +51,7 @@ public class BArmorStandEntity extends BArmoredEntity<BArmorStandEntity> {
      */
     public @Nonnull BArmorStandEntity setRightArmPose(float x, float y, float z) {
         getEntity(EntityArmorStand.class).setRightArmPose(new Vector3f(x, y, z));
-
-        BPacket.send(new PacketPlayOutEntityMetadata(getId(), getEntity().getDataWatcher(), true), getRenderer().getShownViewersAsPlayer());
+        markMetadataDirty();
 
         return this;
     }
@@ -70,8 +66,7 @@ public class BArmorStandEntity extends BArmoredEntity<BArmorStandEntity> {
      */
     public @Nonnull BArmorStandEntity setLeftArmPose(float x, float y, float z) {
         getEntity(EntityArmorStand.class).setLeftArmPose(new Vector3f(x, y, z));
-
-        BPacket.send(new PacketPlayOutEntityMetadata(getId(), getEntity().getDataWatcher(), true), getRenderer().getShownViewersAsPlayer());
+        markMetadataDirty();
 
         return this;
     }
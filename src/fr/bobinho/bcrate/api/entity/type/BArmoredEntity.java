@@ -3,7 +3,6 @@ package fr.bobinho.bcrate.api.entity.type;
 import com.mojang.datafixers.util.Pair;
 import fr.bobinho.bcrate.api.entity.BEntity;
 import fr.bobinho.bcrate.api.entity.BEntityType;
-import fr.bobinho.bcrate.api.item.BItemBuilder;
 import fr.bobinho.bcrate.api.packet.BPacket;
 import fr.bobinho.bcrate.api.validate.BValidate;
 import net.minecraft.network.protocol.game.PacketPlayOutEntityEquipment;
@@ -16,6 +15,7 @@ import org.bukkit.entity.Player;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Bobinho armored entity library
@@ -67,14 +67,25 @@ public class BArmoredEntity<T extends BArmoredEntity<T>> extends BEntity<BArmore
         public @Nonnull List<Pair<EnumItemSlot, ItemStack>> toPacketObject(@Nonnull org.bukkit.inventory.ItemStack targetItem) {
             BValidate.notNull(targetItem);
 
-            return new ArrayList<>(List.of(new Pair<>(this.slot, CraftItemStack.asNMSCopy(targetItem))));
+            return List.of(new Pair<>(this.slot, toNMSItem(targetItem)));
         }
     }
 
+    /**
+     * Shared NMS items, the packets never modify them
+     */
+    private static final ItemStack AIR = CraftItemStack.asNMSCopy(new org.bukkit.inventory.ItemStack(Material.AIR));
+    private static final Map<org.bukkit.inventory.ItemStack, ItemStack> items = new ConcurrentHashMap<>();
+    private static volatile int generation;
+
     /**
      * Fields
      */
     private final HashMap<Equipment, org.bukkit.inventory.ItemStack> equipments = new HashMap<>();
+    private final PacketPlayOutEntityEquipment[] equipmentPackets = new PacketPlayOutEntityEquipment[Equipment.values().length];
+    private final org.bukkit.inventory.ItemStack[] packetItems = new org.bukkit.inventory.ItemStack[Equipment.values().length];
+    private final int[] packetGenerations = new int[Equipment.values().length];
+    private final PacketPlayOutEntityEquipment[] clearPackets = new PacketPlayOutEntityEquipment[Equipment.values().length];
 
     /**
      * Creates a new armored entity
@@ -86,6 +97,72 @@ public class BArmoredEntity<T extends BArmoredEntity<T>> extends BEntity<BArmore
         super(entityType, location);
     }
 
+    /**
+     * Gets the cached NMS copy of the item
+     *
+     * @param item the item
+     * @return the NMS copy
+     */
+    private static @Nonnull ItemStack toNMSItem(@Nonnull org.bukkit.inventory.ItemStack item) {
+        BValidate.notNull(item);
+
+        ItemStack nmsItem = items.get(item);
+        if (nmsItem == null) {
+            nmsItem = CraftItemStack.asNMSCopy(item);
+
+            //The key is cloned so later changes of the item cannot corrupt the cache
+            items.put(item.clone(), nmsItem);
+        }
+
+        return nmsItem;
+    }
+
+    /**
+     * Invalidates the cached NMS items and equipment packets, must be called when a skin changes
+     */
+    public static void invalidateEquipments() {
+        items.clear();
+        generation++;
+    }
+
+    /**
+     * Gets the equipment packet, rebuilt only when the item or the skins change
+     *
+     * @param equipment the equipment
+     * @param item      the item
+     * @return the equipment packet
+     */
+    private @Nonnull PacketPlayOutEntityEquipment getEquipmentPacket(@Nonnull Equipment equipment, @Nonnull org.bukkit.inventory.ItemStack item) {
+        BValidate.notNull(equipment);
+        BValidate.notNull(item);
+
+        int index = equipment.ordinal();
+        if (equipmentPackets[index] == null || packetItems[index] != item || packetGenerations[index] != generation) {
+            equipmentPackets[index] = new PacketPlayOutEntityEquipment(getId(), equipment.toPacketObject(item));
+            packetItems[index] = item;
+            packetGenerations[index] = generation;
+        }
+
+        return equipmentPackets[index];
+    }
+
+    /**
+     * Gets the equipment clear packet
+     *
+     * @param equipment the equipment
+     * @return the equipment clear packet
+     */
+    private @Nonnull PacketPlayOutEntityEquipment getClearPacket(@Nonnull Equipment equipment) {
+        BValidate.notNull(equipment);
+
+        int index = equipment.ordinal();
+        if (clearPackets[index] == null) {
+            clearPackets[index] = new PacketPlayOutEntityEquipment(getId(), List.of(new Pair<>(equipment.getSlot(), AIR)));
+        }
+
+        return clearPackets[index];
+    }
+
     /**
      * Gets the equipment
      *
@@ -112,10 +189,10 @@ public class BArmoredEntity<T extends BArmoredEntity<T>> extends BEntity<BArmore
         equipments.put(equipment, item);
 
         //If players are empty, no need to continue
-        if (!getRenderer().getShownViewersAsPlayer().isEmpty()) {
+        if (getRenderer().isShown()) {
 
             //Sends equipment packet
-            BPacket.send(new PacketPlayOutEntityEquipment(getId(), equipment.toPacketObject(item)), getRenderer().getShownViewersAsPlayer());
+            BPacket.send(getEquipmentPacket(equipment, item), getRenderer().getShownPlayers());
         }
 
         return (T) this;
@@ -132,11 +209,11 @@ public class BArmoredEntity<T extends BArmoredEntity<T>> extends BEntity<BArmore
         Optional.ofNullable(equipments.remove(equipment)).ifPresent(previousItem -> {
 
             //If players are empty, no need to continue
-            if (getRenderer().getShownViewersAsPlayer().isEmpty())
+            if (!getRenderer().isShown())
                 return;
 
             //Sends the equipment clear packet
-            BPacket.send(new PacketPlayOutEntityEquipment(getId(), equipment.toPacketObject(new BItemBuilder(Material.AIR).build())), getRenderer().getShownViewersAsPlayer());
+            BPacket.send(getClearPacket(equipment), getRenderer().getShownPlayers());
         });
 
         return (T) this;
@@ -163,7 +240,7 @@ public class BArmoredEntity<T extends BArmoredEntity<T>> extends BEntity<BArmore
                 this.getEquipment(equipment).ifPresent(equipmentItem -> {
 
                     //Sends equipment packet
-                    BPacket.send(new PacketPlayOutEntityEquipment(getId(), equipment.toPacketObject(equipmentItem)), players);
+                    BPacket.send(getEquipmentPacket(equipment, equipmentItem), players);
                 })
         );
     }
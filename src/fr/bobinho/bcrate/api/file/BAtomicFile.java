@@ -0,0 +1,58 @@
+package fr.bobinho.bcrate.api.file;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bobinho atomic file library
+ * Writes a whole file to a temporary file next to it, syncs it, then renames it over the old one
+ * A crash during the write leaves either the old file or the new one, never a truncated one
+ */
+public final class BAtomicFile {
+
+    /**
+     * Unitilizable constructor (utility class)
+     */
+    private BAtomicFile() {
+    }
+
+    /**
+     * Writes a file atomically
+     *
+     * @param path the file path
+     * @param data the file data
+     * @throws IOException if the file could not be written
+     */
+    public static void write(@Nonnull Path path, @Nonnull byte[] data) throws IOException {
+        BValidate.notNull(path);
+        BValidate.notNull(data);
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path temporary = parent.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
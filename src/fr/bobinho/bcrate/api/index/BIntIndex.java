@@ -0,0 +1,170 @@
+package fr.bobinho.bcrate.api.index;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * Bobinho int index library
+ * Open addressing int map, copied on write so lookups are lock free and allocation free from any thread
+ */
+public final class BIntIndex<V> {
+
+    /**
+     * Fields
+     */
+    private volatile Table table = new Table(16);
+
+    /**
+     * Gets the optional value associated with the key
+     *
+     * @param key the key
+     * @return the optional value
+     */
+    public @Nonnull Optional<V> get(int key) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+
+        //Probes until an empty slot
+        for (int i = mix(key) & mask; current.values[i] != null; i = (i + 1) & mask) {
+            if (current.keys[i] == key) {
+                return Optional.of((V) current.values[i]);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Gets the number of keys
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Associates all keys with the value
+     *
+     * @param value the value
+     * @param keys  the keys
+     */
+    public synchronized void put(@Nonnull V value, @Nonnull int... keys) {
+        BValidate.notNull(value);
+        BValidate.notNull(keys);
+
+        Table current = table;
+        Table next = new Table(capacity(current.size + keys.length));
+        current.copyTo(next, null);
+        for (int key : keys) {
+            next.insert(key, value);
+        }
+
+        table = next;
+    }
+
+    /**
+     * Removes all keys associated with the value
+     *
+     * @param value the value
+     */
+    public synchronized void remove(@Nonnull V value) {
+        BValidate.notNull(value);
+
+        Table current = table;
+        Table next = new Table(capacity(current.size));
+        current.copyTo(next, value);
+
+        table = next;
+    }
+
+    /**
+     * Removes all keys
+     */
+    public synchronized void clear() {
+        table = new Table(16);
+    }
+
+    /**
+     * Gets the table capacity for a number of keys (load factor of 0.5)
+     *
+     * @param size the number of keys
+     * @return the table capacity
+     */
+    private static int capacity(int size) {
+        return Math.max(16, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1);
+    }
+
+    /**
+     * Spreads the key bits, entity ids are sequential
+     *
+     * @param key the key
+     * @return the spread key
+     */
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Immutable once published table
+     */
+    private static final class Table {
+
+        /**
+         * Fields
+         */
+        private final int[] keys;
+        private final Object[] values;
+        private int size;
+
+        /**
+         * Creates a new table
+         *
+         * @param capacity the capacity (power of two)
+         */
+        private Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new Object[capacity];
+        }
+
+        /**
+         * Inserts or replaces a key
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        private void insert(int key, @Nonnull Object value) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+
+            if (values[i] == null) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /**
+         * Copies all entries to another table
+         *
+         * @param table    the other table
+         * @param excluded the value whose entries are not copied, or null
+         */
+        private void copyTo(@Nonnull Table table, Object excluded) {
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null && values[i] != excluded) {
+                    table.insert(keys[i], values[i]);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+package fr.bobinho.bcrate.api.inventory;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bobinho inventory fit library
+ * Snapshots an inventory once and answers whether items can be added, without cloning the inventory
+ * It follows the bukkit addItem rules: partial stacks are filled first, then empty slots up to the inventory max stack size
+ */
+public final class BInventoryFit {
+
+    /**
+     * Fields
+     */
+    private final ItemStack[] contents;
+    private final int maxStackSize;
+    private final int emptySlots;
+
+    /**
+     * Creates a new inventory fit
+     *
+     * @param inventory the inventory
+     */
+    public BInventoryFit(@Nonnull Inventory inventory) {
+        BValidate.notNull(inventory);
+
+        this.contents = inventory.getStorageContents();
+        this.maxStackSize = inventory.getMaxStackSize();
+
+        int empty = 0;
+        for (ItemStack item : contents) {
+            if (item == null || item.getType() == Material.AIR) {
+                empty++;
+            }
+        }
+        this.emptySlots = empty;
+    }
+
+    /**
+     * Gets the number of empty slots
+     *
+     * @return the number of empty slots
+     */
+    public int getEmptySlots() {
+        return emptySlots;
+    }
+
+    /**
+     * Gets the room left in the partial stacks similar to the item
+     *
+     * @param item the item
+     * @return the room left in the partial stacks
+     */
+    public int getHeadroom(@Nonnull ItemStack item) {
+        BValidate.notNull(item);
+
+        int headroom = 0;
+        for (ItemStack content : contents) {
+            if (content != null && content.isSimilar(item)) {
+                headroom += Math.max(0, content.getMaxStackSize() - content.getAmount());
+            }
+        }
+
+        return headroom;
+    }
+
+    /**
+     * Gets the number of empty slots needed to add an amount of the item
+     *
+     * @param amount   the amount
+     * @param headroom the room left in the partial stacks
+     * @return the number of empty slots needed
+     */
+    private int getSlotsNeeded(int amount, int headroom) {
+        return (Math.max(0, amount - headroom) + maxStackSize - 1) / maxStackSize;
+    }
+
+    /**
+     * Gets the number of empty slots needed to add an amount of the item, following its own max stack size
+     *
+     * @param item     the item
+     * @param amount   the amount
+     * @param headroom the room left in the partial stacks
+     * @return the number of empty slots needed
+     */
+    private int getSlotsNeeded(@Nonnull ItemStack item, int amount, int headroom) {
+        BValidate.notNull(item);
+
+        int stackSize = Math.max(1, Math.min(maxStackSize, item.getMaxStackSize()));
+
+        return (Math.max(0, amount - headroom) + stackSize - 1) / stackSize;
+    }
+
+    /**
+     * Gets the number of empty slots needed to add two stacks of the same item one after the other
+     *
+     * @param item     the item
+     * @param first    the first amount
+     * @param second   the second amount
+     * @param headroom the room left in the partial stacks
+     * @return the number of empty slots needed
+     */
+    private int getSlotsNeeded(@Nonnull ItemStack item, int first, int second, int headroom) {
+        BValidate.notNull(item);
+
+        //The first stack fills the partial stacks, then new slots
+        int remaining = Math.max(0, first - headroom);
+        int firstSlots = getSlotsNeeded(first, headroom);
+
+        //The last new slot can become a partial stack for the second one
+        int nextHeadroom = headroom - Math.min(first, headroom);
+        if (firstSlots > 0) {
+            nextHeadroom += Math.max(0, item.getMaxStackSize() - (remaining - (firstSlots - 1) * maxStackSize));
+        }
+
+        return firstSlots + getSlotsNeeded(second, nextHeadroom);
+    }
+
+    /**
+     * Checks if the item can be added
+     *
+     * @param item the item
+     * @return true if the item can be added, false otherwise
+     */
+    public boolean canFit(@Nonnull ItemStack item) {
+        BValidate.notNull(item);
+
+        return getSlotsNeeded(item.getAmount(), getHeadroom(item)) <= emptySlots;
+    }
+
+    /**
+     * Checks if any two of the items (the same item twice included) can be added together
+     * Only the worst case of each kind of item is computed, so it is linear in the number of items
+     *
+     * @param items the items
+     * @return true if any two of the items can be added together, false otherwise
+     */
+    public boolean canFitAnyTwo(@Nonnull List<ItemStack> items) {
+        BValidate.notNull(items);
+
+        //Gets the largest amount of each kind of item
+        Map<ItemStack, Integer> largest = new HashMap<>();
+        for (ItemStack item : items) {
+            ItemStack kind = item.clone();
+            kind.setAmount(1);
+
+            largest.merge(kind, item.getAmount(), Math::max);
+        }
+
+        int first = 0;
+        int second = 0;
+        for (Map.Entry<ItemStack, Integer> entry : largest.entrySet()) {
+            int amount = entry.getValue();
+            int headroom = getHeadroom(entry.getKey());
+
+            //Worst pair of the same kind: the largest one twice
+            if (getSlotsNeeded(entry.getKey(), amount, amount, headroom) > emptySlots) {
+                return false;
+            }
+
+            //Keeps the two largest needs of different kinds
+            int needed = getSlotsNeeded(amount, headroom);
+            if (needed > first) {
+                second = first;
+                first = needed;
+            } else if (needed > second) {
+                second = needed;
+            }
+        }
+
+        //Worst pair of different kinds
+        return first + second <= emptySlots;
+    }
+
+    /**
+     * Checks if all the items can be added together
+     * The similar items are merged first, so each kind of item is computed once
+     *
+     * @param items the items
+     * @return true if all the items can be added together, false otherwise
+     */
+    public boolean canFitAll(@Nonnull List<ItemStack> items) {
+        BValidate.notNull(items);
+
+        //Gets the total amount of each kind of item
+        Map<ItemStack, Integer> totals = new HashMap<>();
+        for (ItemStack item : items) {
+            ItemStack kind = item.clone();
+            kind.setAmount(1);
+
+            totals.merge(kind, item.getAmount(), Integer::sum);
+        }
+
+        int needed = 0;
+        for (Map.Entry<ItemStack, Integer> entry : totals.entrySet()) {
+            needed += getSlotsNeeded(entry.getKey(), entry.getValue(), getHeadroom(entry.getKey()));
+            if (needed > emptySlots) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -3,16 +3,25 @@ package fr.bobinho.bcrate.api.location;
 import fr.bobinho.bcrate.api.validate.BValidate;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.craftbukkit.v1_17_R1.CraftWorld;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Bobinho location library
  */
 public final class BLocation {
 
+    /**
+     * Fields
+     */
+    private static final Map<UUID, Double> viewRanges = new ConcurrentHashMap<>();
+
     /**
      * Unitilizable constructor (utility class)
      */
@@ -103,6 +112,40 @@ public final class BLocation {
         return location1.distance(location2);
     }
 
+    /**
+     * Measures the squared distance between two location
+     *
+     * @param location1 the first location
+     * @param location2 the second location
+     * @return the squared distance between two location
+     */
+    public static double measureSquared(@Nonnull Location location1, @Nonnull Location location2) {
+        BValidate.notNull(location1);
+        BValidate.notNull(location2);
+
+        //If one of the two location is in different world, return max double value
+        if (!Objects.equals(location1.getWorld(), location2.getWorld()))
+            return Double.MAX_VALUE;
+
+        double x = location1.getX() - location2.getX();
+        double y = location1.getY() - location2.getY();
+        double z = location1.getZ() - location2.getZ();
+
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Gets the view range of a world, from the player tracking range of the spigot config (cached)
+     *
+     * @param world the world
+     * @return the view range
+     */
+    public static double getViewRange(@Nonnull World world) {
+        BValidate.notNull(world);
+
+        return viewRanges.computeIfAbsent(world.getUID(), uuid -> ((CraftWorld) world).getHandle().spigotConfig.playerTrackingRange / 1.5);
+    }
+
     /**
      * Checks if the second location is observable from the first location
      *
@@ -115,7 +158,8 @@ public final class BLocation {
         BValidate.notNull(location2);
 
         //Measure distance with player tracking range from the spigot config
-        return measure(location1, location2) <= ((CraftWorld) Objects.requireNonNull(location1.getWorld())).getHandle().spigotConfig.playerTrackingRange / 1.5;
+        double range = getViewRange(Objects.requireNonNull(location1.getWorld()));
+        return measureSquared(location1, location2) <= range * range;
     }
 
     /**
@@ -0,0 +1,236 @@
+package fr.bobinho.bcrate.api.location;
+
+import fr.bobinho.bcrate.api.event.BEvent;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.*;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.spigotmc.event.entity.EntityDismountEvent;
+import org.spigotmc.event.entity.EntityMountEvent;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bobinho player grid library
+ * Spatial index of the online players by cells of 16 blocks, updated from the player and vehicle events
+ */
+public final class BPlayerGrid {
+
+    /**
+     * Constants
+     */
+    private static final int CELL_SHIFT = 4;
+
+    /**
+     * Fields
+     */
+    private static final Map<UUID, Map<Long, Set<Player>>> worlds = new ConcurrentHashMap<>();
+    private static final Map<UUID, Cell> cells = new ConcurrentHashMap<>();
+    private static final List<BEvent<?>> events = new ArrayList<>();
+
+    /**
+     * Unitilizable constructor (utility class)
+     */
+    private BPlayerGrid() {
+    }
+
+    /**
+     * Registers the grid listeners and indexes the online players
+     */
+    public static void register() {
+        unregister();
+
+        Bukkit.getOnlinePlayers().forEach(player -> update(player, player.getLocation()));
+
+        //Joining players are indexed before the other listeners render anything for them
+        events.add(BEvent.registerEvent(PlayerJoinEvent.class, EventPriority.LOWEST)
+                .consume(event -> update(event.getPlayer(), event.getPlayer().getLocation())));
+        events.add(BEvent.registerEvent(PlayerQuitEvent.class, EventPriority.MONITOR)
+                .consume(event -> remove(event.getPlayer())));
+        events.add(BEvent.registerEvent(PlayerMoveEvent.class, EventPriority.MONITOR)
+                .filter(BEvent.Filter.IGNORE_CANCELLED)
+                .consume(event -> update(event.getPlayer(), event.getTo())));
+        events.add(BEvent.registerEvent(PlayerTeleportEvent.class, EventPriority.MONITOR)
+                .filter(BEvent.Filter.IGNORE_CANCELLED)
+                .consume(event -> update(event.getPlayer(), event.getTo())));
+        events.add(BEvent.registerEvent(PlayerRespawnEvent.class, EventPriority.MONITOR)
+                .consume(event -> update(event.getPlayer(), event.getRespawnLocation())));
+
+        //Portals and plugins teleports are not always seen as a teleport event
+        events.add(BEvent.registerEvent(PlayerChangedWorldEvent.class, EventPriority.MONITOR)
+                .consume(event -> update(event.getPlayer(), event.getPlayer().getLocation())));
+
+        //Riders do not fire move events, they move with their vehicle
+        events.add(BEvent.registerEvent(VehicleMoveEvent.class, EventPriority.MONITOR)
+                .consume(event -> updatePassengers(event.getVehicle(), event.getTo())));
+        events.add(BEvent.registerEvent(EntityMountEvent.class, EventPriority.MONITOR)
+                .filter(BEvent.Filter.IGNORE_CANCELLED)
+                .filter(event -> event.getEntity() instanceof Player)
+                .consume(event -> update((Player) event.getEntity(), event.getMount().getLocation())));
+        events.add(BEvent.registerEvent(EntityDismountEvent.class, EventPriority.MONITOR)
+                .filter(BEvent.Filter.IGNORE_CANCELLED)
+                .filter(event -> event.getEntity() instanceof Player)
+                .consume(event -> update((Player) event.getEntity(), event.getEntity().getLocation())));
+    }
+
+    /**
+     * Unregisters the grid listeners and clears the grid
+     */
+    public static void unregister() {
+        events.forEach(BEvent::unregister);
+        events.clear();
+
+        worlds.clear();
+        cells.clear();
+    }
+
+    /**
+     * Gets the cell key of a block coordinates
+     *
+     * @param x the block x coordinate
+     * @param z the block z coordinate
+     * @return the cell key
+     */
+    private static long key(int x, int z) {
+        return ((long) (x >> CELL_SHIFT) << 32) | ((z >> CELL_SHIFT) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Moves a player to the cell of the location
+     *
+     * @param player   the player
+     * @param location the location
+     */
+    private static void update(@Nonnull Player player, Location location) {
+        BValidate.notNull(player);
+
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+
+        UUID world = location.getWorld().getUID();
+        long key = key(location.getBlockX(), location.getBlockZ());
+
+        //If the player is still in the same cell, no need to continue
+        Cell previous = cells.get(player.getUniqueId());
+        if (previous != null && previous.key == key && previous.world.equals(world)) {
+            return;
+        }
+
+        remove(player);
+        worlds.computeIfAbsent(world, uuid -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, cell -> ConcurrentHashMap.newKeySet())
+                .add(player);
+        cells.put(player.getUniqueId(), new Cell(world, key));
+    }
+
+    /**
+     * Moves the players riding a vehicle, directly or on another passenger, to the cell of the location
+     *
+     * @param vehicle  the vehicle
+     * @param location the location
+     */
+    private static void updatePassengers(@Nonnull Entity vehicle, Location location) {
+        BValidate.notNull(vehicle);
+
+        for (Entity passenger : vehicle.getPassengers()) {
+            if (passenger instanceof Player) {
+                update((Player) passenger, location);
+            }
+
+            updatePassengers(passenger, location);
+        }
+    }
+
+    /**
+     * Removes a player from the grid
+     *
+     * @param player the player
+     */
+    private static void remove(@Nonnull Player player) {
+        BValidate.notNull(player);
+
+        Cell previous = cells.remove(player.getUniqueId());
+        if (previous == null) {
+            return;
+        }
+
+        Optional.ofNullable(worlds.get(previous.world)).ifPresent(grid -> grid.computeIfPresent(previous.key, (key, players) -> {
+            players.remove(player);
+            return players.isEmpty() ? null : players;
+        }));
+    }
+
+    /**
+     * Gets the online players in the cells overlapping the radius of the location, the distance must still be checked
+     *
+     * @param location the location
+     * @param radius   the radius
+     * @return the online players near the location
+     */
+    public static @Nonnull List<Player> getNearbyPlayers(@Nonnull Location location, double radius) {
+        BValidate.notNull(location);
+
+        World world = location.getWorld();
+        if (world == null) {
+            return List.of();
+        }
+
+        Map<Long, Set<Player>> grid = worlds.get(world.getUID());
+        if (grid == null || grid.isEmpty()) {
+            return List.of();
+        }
+
+        //Cells overlapping the radius
+        int minX = (int) Math.floor(location.getX() - radius) >> CELL_SHIFT;
+        int maxX = (int) Math.floor(location.getX() + radius) >> CELL_SHIFT;
+        int minZ = (int) Math.floor(location.getZ() - radius) >> CELL_SHIFT;
+        int maxZ = (int) Math.floor(location.getZ() + radius) >> CELL_SHIFT;
+
+        List<Player> players = new ArrayList<>();
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                Set<Player> cell = grid.get(key(x << CELL_SHIFT, z << CELL_SHIFT));
+                if (cell != null) {
+                    players.addAll(cell);
+                }
+            }
+        }
+
+        return players;
+    }
+
+    /**
+     * Cell of a player
+     */
+    private static final class Cell {
+
+        /**
+         * Fields
+         */
+        private final UUID world;
+        private final long key;
+
+        /**
+         * Creates a new cell
+         *
+         * @param world the world uuid
+         * @param key   the cell key
+         */
+        private Cell(@Nonnull UUID world, long key) {
+            BValidate.notNull(world);
+
+            this.world = world;
+            this.key = key;
+        }
+
+    }
+
+}
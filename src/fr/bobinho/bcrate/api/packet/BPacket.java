@@ -2,7 +2,10 @@ package fr.bobinho.bcrate.api.packet;
 
 import fr.bobinho.bcrate.BCrateCore;
 import fr.bobinho.bcrate.api.validate.BValidate;
+import io.netty.channel.Channel;
+import net.minecraft.network.NetworkManager;
 import net.minecraft.network.protocol.Packet;
+import net.minecraft.server.network.PlayerConnection;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.craftbukkit.v1_17_R1.entity.CraftPlayer;
@@ -10,16 +13,93 @@ import org.bukkit.entity.Player;
 
 import javax.annotation.Nonnull;
 import java.lang.reflect.Field;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Bobinho packet library
+ * On the main thread, packets can be batched: they are gathered per player and written with a single flush when the outermost batch ends
  */
 public final class BPacket {
 
+    /**
+     * Fields
+     */
+    private static final Map<Player, List<Packet<?>>> batch = new LinkedHashMap<>();
+    private static int batchDepth;
+
+    /**
+     * Starts batching the packets sent from the main thread, batches can be nested
+     */
+    public static void startBatch() {
+        if (!Bukkit.isPrimaryThread()) {
+            return;
+        }
+
+        batchDepth++;
+    }
+
+    /**
+     * Ends the current batch, the outermost one sends all gathered packets
+     */
+    public static void flushBatch() {
+        if (!Bukkit.isPrimaryThread() || batchDepth == 0 || --batchDepth > 0) {
+            return;
+        }
+
+        batch.forEach(BPacket::write);
+        batch.clear();
+    }
+
+    /**
+     * Sends the packet to the player, or adds it to the current batch
+     *
+     * @param player the player
+     * @param packet the packet
+     */
+    private static void dispatch(@Nonnull Player player, @Nonnull Packet<?> packet) {
+        BValidate.notNull(player);
+        BValidate.notNull(packet);
+
+        if (batchDepth > 0 && Bukkit.isPrimaryThread()) {
+            batch.computeIfAbsent(player, key -> new ArrayList<>()).add(packet);
+            return;
+        }
+
+        ((CraftPlayer) player).getHandle().b.sendPacket(packet);
+    }
+
+    /**
+     * Writes the gathered packets to the player channel, in the order they were sent, and flushes it once
+     *
+     * @param player  the player
+     * @param packets the packets
+     */
+    private static void write(@Nonnull Player player, @Nonnull List<Packet<?>> packets) {
+        BValidate.notNull(player);
+        BValidate.notNull(packets);
+
+        if (!player.isOnline()) {
+            return;
+        }
+
+        //A disconnected network manager queues the packets itself, they go through it one by one
+        PlayerConnection connection = ((CraftPlayer) player).getHandle().b;
+        NetworkManager networkManager = connection.a;
+        Channel channel = networkManager.k;
+        if (channel == null || !networkManager.isConnected()) {
+            packets.forEach(connection::sendPacket);
+            return;
+        }
+
+        //Runs on the event loop, after the packets the connection has already handed to it
+        channel.eventLoop().execute(() -> {
+            for (Packet<?> packet : packets) {
+                channel.write(packet, channel.voidPromise());
+            }
+            channel.flush();
+        });
+    }
+
     /**
      * Sends the packet to the players
      *
@@ -30,10 +110,12 @@ public final class BPacket {
         BValidate.notNull(packet);
         BValidate.notNull(players);
 
-        //Sends packet
-        Arrays.stream(players)
-                .filter(player -> player != null && player.isOnline())
-                .forEach(player -> ((CraftPlayer) player).getHandle().b.sendPacket(packet));
+        //Sends packet, without allocation as it is called for every animation packet
+        for (Player player : players) {
+            if (player != null && player.isOnline()) {
+                dispatch(player, packet);
+            }
+        }
     }
 
     /**
@@ -50,7 +132,7 @@ public final class BPacket {
         Arrays.stream(players)
                 .map(Bukkit::getPlayer)
                 .filter(player -> player != null && player.isOnline())
-                .forEach(player -> ((CraftPlayer) player).getHandle().b.sendPacket(packet));
+                .forEach(player -> dispatch(player, packet));
     }
 
     /**
@@ -66,7 +148,7 @@ public final class BPacket {
         //Sends packet.
         players.stream()
                 .filter(player -> player != null && player.isOnline())
-                .forEach(player -> ((CraftPlayer) player).getHandle().b.sendPacket(packet));
+                .forEach(player -> dispatch(player, packet));
     }
 
     /**
@@ -83,7 +165,7 @@ public final class BPacket {
         //Sends packet.
         Objects.requireNonNull(location.getWorld()).getNearbyEntities(location, radius, radius, radius).stream()
                 .filter(entity -> entity instanceof Player)
-                .forEach(player -> ((CraftPlayer) player).getHandle().b.sendPacket(packet));
+                .forEach(player -> dispatch((Player) player, packet));
     }
 
     /**
@@ -1,6 +1,7 @@
 package fr.bobinho.bcrate.api.renderer;
 
 import fr.bobinho.bcrate.api.location.BLocation;
+import fr.bobinho.bcrate.api.location.BPlayerGrid;
 import fr.bobinho.bcrate.api.validate.BValidate;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -9,7 +10,6 @@ import org.bukkit.entity.Player;
 import javax.annotation.Nonnull;
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * Bobinho renderer library
@@ -19,8 +19,10 @@ public final class BRenderer {
     /**
      * Fields
      */
-    private List<UUID> viewers = new ArrayList<>();
-    private List<UUID> blacklist = new ArrayList<>();
+    private static final Player[] EMPTY = new Player[0];
+
+    private Set<UUID> viewers = new LinkedHashSet<>();
+    private Set<UUID> blacklist = new HashSet<>();
     private Location location;
     private int radius = -1;
     private final Consumer<List<Player>> showConsumer;
@@ -28,7 +30,10 @@ public final class BRenderer {
     private Consumer<BRenderer> emptyConsumer;
     private Consumer<BRenderer> deleteConsumer;
     private Consumer<BRenderer> updateConsumer;
-    private final List<UUID> shownViewers = new ArrayList<>();
+    private final Map<UUID, Player> shownViewers = new LinkedHashMap<>();
+    private Player[] shownPlayers = EMPTY;
+    private boolean shownPlayersDirty;
+    private BRendererGroup group;
 
     /**
      * Creates a new renderer
@@ -38,13 +43,13 @@ public final class BRenderer {
      * @param showConsumer Show consumer.
      * @param hideConsumer Hide consumer.
      */
-    public BRenderer(@Nonnull List<UUID> viewers, @Nonnull Location location, @Nonnull Consumer<List<Player>> showConsumer, @Nonnull Consumer<List<Player>> hideConsumer) {
+    public BRenderer(@Nonnull Collection<UUID> viewers, @Nonnull Location location, @Nonnull Consumer<List<Player>> showConsumer, @Nonnull Consumer<List<Player>> hideConsumer) {
         BValidate.notNull(viewers);
         BValidate.notNull(location);
         BValidate.notNull(showConsumer);
         BValidate.notNull(hideConsumer);
 
-        this.viewers = viewers;
+        this.viewers = new LinkedHashSet<>(viewers);
         this.location = location;
         this.showConsumer = showConsumer;
         this.hideConsumer = hideConsumer;
@@ -73,10 +78,34 @@ public final class BRenderer {
      * @return all shown viewers as players
      */
     public @Nonnull List<Player> getShownViewersAsPlayer() {
-        return shownViewers.stream()
-                .map(Bukkit::getPlayer)
-                .filter(Objects::nonNull)
-                .toList();
+        return Arrays.asList(getShownPlayers());
+    }
+
+    /**
+     * Gets the snapshot of the shown viewers, rebuilt only when they change (must not be modified)
+     *
+     * @return the shown viewers snapshot
+     */
+    public @Nonnull Player[] getShownPlayers() {
+        if (group != null) {
+            return group.getRenderer().getShownPlayers();
+        }
+
+        if (shownPlayersDirty) {
+            shownPlayers = shownViewers.isEmpty() ? EMPTY : shownViewers.values().toArray(EMPTY);
+            shownPlayersDirty = false;
+        }
+
+        return shownPlayers;
+    }
+
+    /**
+     * Checks if the objects are shown to at least one viewer
+     *
+     * @return true if the objects are shown, false otherwise
+     */
+    public boolean isShown() {
+        return getShownPlayers().length > 0;
     }
 
     /**
@@ -84,8 +113,12 @@ public final class BRenderer {
      *
      * @return all shown viewers
      */
-    public @Nonnull List<UUID> getShownViewers() {
-        return shownViewers;
+    public @Nonnull Set<UUID> getShownViewers() {
+        if (group != null) {
+            return group.getRenderer().getShownViewers();
+        }
+
+        return Collections.unmodifiableSet(shownViewers.keySet());
     }
 
     /**
@@ -96,7 +129,54 @@ public final class BRenderer {
     public void removeShownViewers(@Nonnull UUID uuid) {
         BValidate.notNull(uuid);
 
-        shownViewers.remove(uuid);
+        if (group != null) {
+            group.getRenderer().removeShownViewers(uuid);
+            return;
+        }
+
+        if (shownViewers.remove(uuid) != null) {
+            shownPlayersDirty = true;
+        }
+    }
+
+    /**
+     * Gets the group
+     *
+     * @return the optional group
+     */
+    public @Nonnull Optional<BRendererGroup> getGroup() {
+        return Optional.ofNullable(group);
+    }
+
+    /**
+     * Sets the group, the group then decides who sees the renderer
+     *
+     * @param group the group, or null
+     */
+    void setGroup(BRendererGroup group) {
+        this.group = group;
+    }
+
+    /**
+     * Shows the objects, without checking the viewers
+     *
+     * @param players the players
+     */
+    void show(@Nonnull List<Player> players) {
+        BValidate.notNull(players);
+
+        showConsumer.accept(players);
+    }
+
+    /**
+     * Hides the objects, without checking the viewers
+     *
+     * @param players the players
+     */
+    void hide(@Nonnull List<Player> players) {
+        BValidate.notNull(players);
+
+        hideConsumer.accept(players);
     }
 
     /**
@@ -116,7 +196,7 @@ public final class BRenderer {
      *
      * @return all viewers
      */
-    public @Nonnull List<UUID> getViewers() {
+    public @Nonnull Set<UUID> getViewers() {
         return viewers;
     }
 
@@ -125,12 +205,13 @@ public final class BRenderer {
      *
      * @param viewers the viewers
      */
-    public void setViewers(@Nonnull List<UUID> viewers) {
+    public void setViewers(@Nonnull Collection<UUID> viewers) {
         BValidate.notNull(viewers);
 
         this.hideConsumer.accept(getViewersAsPlayer());
         this.shownViewers.clear();
-        this.viewers = viewers;
+        this.shownPlayersDirty = true;
+        this.viewers = new LinkedHashSet<>(viewers);
     }
 
     /**
@@ -141,9 +222,7 @@ public final class BRenderer {
     public void addViewer(@Nonnull Player player) {
         BValidate.notNull(player);
 
-        if (!viewers.contains(player.getUniqueId())) {
-            viewers.add(player.getUniqueId());
-        }
+        viewers.add(player.getUniqueId());
     }
 
     /**
@@ -154,9 +233,7 @@ public final class BRenderer {
     public void addViewer(@Nonnull UUID uuid) {
         BValidate.notNull(uuid);
 
-        if (!viewers.contains(uuid)) {
-            viewers.add(uuid);
-        }
+        viewers.add(uuid);
     }
 
     /**
@@ -186,7 +263,7 @@ public final class BRenderer {
      *
      * @return the blacklist
      */
-    public @Nonnull List<UUID> getBlacklist() {
+    public @Nonnull Set<UUID> getBlacklist() {
         return blacklist;
     }
 
@@ -195,22 +272,25 @@ public final class BRenderer {
      *
      * @param blacklist the blacklist
      */
-    public void setBlacklist(@Nonnull List<UUID> blacklist) {
+    public void setBlacklist(@Nonnull Collection<UUID> blacklist) {
         BValidate.notNull(blacklist);
 
-        this.blacklist = blacklist;
+        this.blacklist = new HashSet<>(blacklist);
     }
 
     /**
-     * Adds the player to the blacklist
+     * Adds the player to the blacklist, the objects are hidden from the player if they were shown
      *
      * @param player the player
      */
     public void addBlacklist(@Nonnull Player player) {
         BValidate.notNull(player);
 
-        if (!blacklist.contains(player.getUniqueId())) {
-            blacklist.add(player.getUniqueId());
+        blacklist.add(player.getUniqueId());
+
+        if (shownViewers.remove(player.getUniqueId()) != null) {
+            shownPlayersDirty = true;
+            hideConsumer.accept(List.of(player));
         }
     }
 
@@ -222,9 +302,7 @@ public final class BRenderer {
     public void addBlacklist(@Nonnull UUID uuid) {
         BValidate.notNull(uuid);
 
-        if (!blacklist.contains(uuid)) {
-            blacklist.add(uuid);
-        }
+        blacklist.add(uuid);
     }
 
     /**
@@ -341,7 +419,7 @@ public final class BRenderer {
 
         //If radius is configured, use it instead of default one
         if (radius > 0) {
-            return BLocation.measure(location, targetLocation) <= radius;
+            return BLocation.measureSquared(location, targetLocation) <= (double) radius * radius;
         }
 
         //Use default configuration
@@ -358,43 +436,59 @@ public final class BRenderer {
             updateConsumer.accept(this);
         }
 
+        //The group computes the viewers of all its members
+        if (group != null) {
+            group.renderOnce();
+            return;
+        }
+
         //Checks shown viewers
         if (!shownViewers.isEmpty()) {
+            List<Player> notAbleToSeeViewers = null;
+
+            for (Iterator<Player> iterator = shownViewers.values().iterator(); iterator.hasNext(); ) {
+                Player player = iterator.next();
+
+                //Disconnected players are removed without hide packet
+                if (!player.isOnline()) {
+                    iterator.remove();
+                    shownPlayersDirty = true;
+                } else if (!canSee(player.getLocation())) {
+                    iterator.remove();
+                    shownPlayersDirty = true;
+
+                    if (notAbleToSeeViewers == null) {
+                        notAbleToSeeViewers = new ArrayList<>();
+                    }
+                    notAbleToSeeViewers.add(player);
+                }
+            }
 
-            Collection<UUID> notAbleToSeeViewers = shownViewers.stream()
-                    .filter(uuid -> {
-                        Player player = Bukkit.getPlayer(uuid);
-                        return player == null || !canSee(player.getLocation());
-                    }).toList();
-
-            //If viewers are empty, no need to continue
-            if (!notAbleToSeeViewers.isEmpty()) {
-
-                //Removes not able to see viewers
-                shownViewers.removeAll(notAbleToSeeViewers);
-
-                //Declares target viewers
-                List<Player> targetViewers = notAbleToSeeViewers.stream()
-                        .map(Bukkit::getPlayer)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-
-                //Hide consumer
-                hideConsumer.accept(targetViewers);
+            //Hide consumer
+            if (notAbleToSeeViewers != null) {
+                hideConsumer.accept(notAbleToSeeViewers);
             }
         }
 
         //Shows viewers
         if (!viewers.isEmpty()) {
+            List<Player> targetViewers = new ArrayList<>();
+            boolean online = false;
 
-            //Stream base target viewers
-            List<Player> targetViewersStream = viewers.stream()
-                    .filter(uuid -> !shownViewers.contains(uuid))
-                    .map(Bukkit::getPlayer)
-                    .filter(Objects::nonNull).toList();
+            for (UUID uuid : viewers) {
+                Player player = Bukkit.getPlayer(uuid);
+                if (player == null) {
+                    continue;
+                }
+
+                online = true;
+                if (!shownViewers.containsKey(uuid) && !blacklist.contains(uuid) && canSee(player.getLocation())) {
+                    targetViewers.add(player);
+                }
+            }
 
             //If all viewers are offline, call empty consumer.
-            if (getViewersAsPlayer().isEmpty()) {
+            if (!online) {
 
                 if (emptyConsumer != null) {
                     emptyConsumer.accept(this);
@@ -402,44 +496,43 @@ public final class BRenderer {
                 return;
             }
 
-            //If there is no target, no need to continue
-            if (targetViewersStream.isEmpty()) {
-                return;
-            }
+            showTargets(targetViewers);
+            return;
+        }
 
-            //Filters target viewers
-            List<Player> targetViewers = targetViewersStream.stream()
-                    .filter(player -> !blacklist.contains(player.getUniqueId()))
-                    .filter(player -> canSee(player.getLocation()))
-                    .collect(Collectors.toList());
+        //If the location is not loaded, no player can see it
+        if (location.getWorld() == null) {
+            return;
+        }
 
-            //If viewers are empty, no need to continue
-            if (targetViewers.isEmpty()) {
-                return;
+        //Declare target viewers, only the players of the nearby cells are checked
+        double range = radius > 0 ? radius : BLocation.getViewRange(location.getWorld());
+        List<Player> targetViewers = new ArrayList<>();
+        for (Player player : BPlayerGrid.getNearbyPlayers(location, range)) {
+            if (!shownViewers.containsKey(player.getUniqueId()) && !blacklist.contains(player.getUniqueId()) && canSee(player.getLocation())) {
+                targetViewers.add(player);
             }
-
-            //Clear shown viewers and add all new target viewers
-            targetViewers.forEach(player -> shownViewers.add(player.getUniqueId()));
-
-            //Show consumer
-            showConsumer.accept(targetViewers);
-            return;
         }
 
-        //Declare target viewers
-        List<Player> targetViewers = Bukkit.getOnlinePlayers().stream()
-                .filter(player -> !blacklist.contains(player.getUniqueId()))
-                .filter(player -> !shownViewers.contains(player.getUniqueId()))
-                .filter(player -> canSee(player.getLocation()))
-                .collect(Collectors.toList());
+        showTargets(targetViewers);
+    }
+
+    /**
+     * Adds the target viewers to the shown viewers and shows the objects
+     *
+     * @param targetViewers the target viewers
+     */
+    private void showTargets(@Nonnull List<Player> targetViewers) {
+        BValidate.notNull(targetViewers);
 
         //If viewers are empty, no need to continue
         if (targetViewers.isEmpty()) {
             return;
         }
 
-        //Clear shown viewers and add all new target viewers
-        targetViewers.forEach(player -> shownViewers.add(player.getUniqueId()));
+        //Add all new target viewers
+        targetViewers.forEach(player -> shownViewers.put(player.getUniqueId(), player));
+        shownPlayersDirty = true;
 
         //Show consumer
         showConsumer.accept(targetViewers);
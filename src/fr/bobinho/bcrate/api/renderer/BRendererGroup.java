@@ -0,0 +1,132 @@
+package fr.bobinho.bcrate.api.renderer;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bobinho renderer group library
+ * Computes the viewers once for renderers close to each other, and shows or hides all of them together
+ */
+public final class BRendererGroup {
+
+    /**
+     * Fields
+     */
+    private final List<BRenderer> members = new ArrayList<>();
+    private final BRenderer renderer;
+    private int lastTick = -1;
+
+    /**
+     * Creates a new renderer group
+     *
+     * @param location the location
+     */
+    public BRendererGroup(@Nonnull Location location) {
+        BValidate.notNull(location);
+
+        this.renderer = new BRenderer(location, this::show, this::hide);
+    }
+
+    /**
+     * Gets the group renderer, holding the shown viewers of all members
+     *
+     * @return the group renderer
+     */
+    public @Nonnull BRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Gets the members
+     *
+     * @return the members
+     */
+    public @Nonnull List<BRenderer> getMembers() {
+        return members;
+    }
+
+    /**
+     * Adds a member to the group
+     *
+     * @param member the member
+     * @return the renderer group
+     */
+    public @Nonnull BRendererGroup add(@Nonnull BRenderer member) {
+        BValidate.notNull(member);
+
+        if (!members.contains(member)) {
+            members.add(member);
+            member.setGroup(this);
+
+            //Shows the new member to the current viewers
+            List<Player> players = renderer.getShownViewersAsPlayer();
+            if (!players.isEmpty()) {
+                member.show(players);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Removes a member from the group
+     *
+     * @param member the member
+     * @return the renderer group
+     */
+    public @Nonnull BRendererGroup remove(@Nonnull BRenderer member) {
+        BValidate.notNull(member);
+
+        if (members.remove(member)) {
+            member.setGroup(null);
+        }
+
+        return this;
+    }
+
+    /**
+     * Shows all members
+     *
+     * @param players the players
+     */
+    private void show(@Nonnull List<Player> players) {
+        BValidate.notNull(players);
+
+        members.forEach(member -> member.show(players));
+    }
+
+    /**
+     * Hides all members
+     *
+     * @param players the players
+     */
+    private void hide(@Nonnull List<Player> players) {
+        BValidate.notNull(players);
+
+        members.forEach(member -> member.hide(players));
+    }
+
+    /**
+     * Renders the group
+     */
+    public void render() {
+        lastTick = Bukkit.getCurrentTick();
+        renderer.render();
+    }
+
+    /**
+     * Renders the group, at most once per tick whatever the number of members rendered
+     */
+    void renderOnce() {
+        if (lastTick != Bukkit.getCurrentTick()) {
+            render();
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package fr.bobinho.bcrate.api.sampler;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bobinho sampler library (Vose alias method, O(1) weighted draws)
+ */
+public final class BSampler<T> {
+
+    /**
+     * Fields
+     */
+    private final Object[] values;
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    /**
+     * Creates a new sampler
+     *
+     * @param values the values
+     * @param weight the weight function, negative weights are treated as zero
+     */
+    public BSampler(@Nonnull List<T> values, @Nonnull ToDoubleFunction<T> weight) {
+        BValidate.notNull(values);
+        BValidate.notNull(weight);
+
+        int size = values.size();
+        this.values = values.toArray();
+        this.probabilities = new double[size];
+        this.aliases = new int[size];
+
+        //If there is no value, no need to continue
+        if (size == 0) {
+            return;
+        }
+
+        //Gets the weights
+        double[] scaled = new double[size];
+        double total = 0.0D;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = Math.max(0.0D, weight.applyAsDouble(values.get(i)));
+            total += scaled[i];
+        }
+
+        //If all weights are null, the draw is uniform
+        for (int i = 0; i < size; i++) {
+            scaled[i] = total > 0.0D ? scaled[i] * size / total : 1.0D;
+        }
+
+        //Splits the columns between the small and the large ones
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (scaled[i] < 1.0D) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+
+        //Fills each small column with a part of a large one
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0D;
+            if (scaled[more] < 1.0D) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+
+        //Remaining columns are full (rounding errors included)
+        while (largeSize > 0) {
+            probabilities[large[--largeSize]] = 1.0D;
+        }
+        while (smallSize > 0) {
+            probabilities[small[--smallSize]] = 1.0D;
+        }
+    }
+
+    /**
+     * Checks if the sampler is empty
+     *
+     * @return true if the sampler is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * Gets the number of values
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Draws a value
+     *
+     * @param random the random generator
+     * @return the drawn value
+     */
+    public @Nonnull T sample(@Nonnull Random random) {
+        BValidate.notNull(random);
+        BValidate.isFalse(isEmpty());
+
+        int column = random.nextInt(values.length);
+
+        return (T) values[random.nextDouble() < probabilities[column] ? column : aliases[column]];
+    }
+
+}
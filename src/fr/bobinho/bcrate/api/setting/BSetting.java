@@ -1,6 +1,8 @@
 package fr.bobinho.bcrate.api.setting;
 
 import fr.bobinho.bcrate.BCrateCore;
+import fr.bobinho.bcrate.api.file.BAtomicFile;
+import fr.bobinho.bcrate.api.scheduler.BScheduler;
 import fr.bobinho.bcrate.api.validate.BValidate;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
@@ -10,20 +12,40 @@ import java.awt.geom.IllegalPathStateException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Bobinho setting library
+ * Changes are written behind: mutations mark the setting dirty and a flusher writes it asynchronously
+ * Mutations may mark only their section dirty, then only the dirty sections are serialized again before the write
  */
 public final class BSetting {
 
     /**
      * Fields
      */
-    private final String fileName;
+    private static final List<BSetting> settings = new CopyOnWriteArrayList<>();
+    private static BScheduler flusher;
 
-    private YamlConfiguration configuration;
+    private final String fileName;
+    private final Object writeLock = new Object();
+    private final AtomicLong generation = new AtomicLong();
+    private long writtenGeneration;
+
+    private YamlConfiguration configuration = new YamlConfiguration();
+    private Runnable serializer;
+    private Consumer<String> sectionSerializer;
+    private Consumer<String> snapshotListener;
+    private final Set<String> dirtySections = new HashSet<>();
+    private volatile boolean dirty;
+    private boolean fullyDirty;
+    private boolean loaded;
+    private boolean complete;
 
     /**
      * Creates a new setting
@@ -31,10 +53,46 @@ public final class BSetting {
      * @param fileName the setting file name
      */
     public BSetting(@Nonnull String fileName) {
+        this(fileName, true);
+    }
+
+    /**
+     * Creates a new setting
+     *
+     * @param fileName the setting file name
+     * @param load     true to load the file now, false to leave the configuration empty until it is initialized
+     */
+    public BSetting(@Nonnull String fileName, boolean load) {
         BValidate.notNull(fileName);
 
         this.fileName = fileName;
-        initialize();
+        if (load) {
+            initialize();
+        }
+        settings.add(this);
+    }
+
+    /**
+     * Starts the flusher which asynchronously writes all dirty settings
+     *
+     * @param interval the interval between two flushes (in ticks)
+     */
+    public static void startFlusher(int interval) {
+        BValidate.isTrue(interval > 0);
+
+        stopFlusher();
+        flusher = BScheduler.syncScheduler().every(interval);
+        flusher.run(() -> settings.forEach(BSetting::flush));
+    }
+
+    /**
+     * Stops the flusher
+     */
+    public static void stopFlusher() {
+        if (flusher != null) {
+            flusher.stop();
+            flusher = null;
+        }
     }
 
     /**
@@ -50,7 +108,7 @@ public final class BSetting {
      * Initializes settings file
      */
     public void initialize() {
-        File file = new File(BCrateCore.getInstance().getDataFolder(), getFileName() + ".yml");
+        File file = getFile();
 
         if (!file.exists()) {
             try {
@@ -67,11 +125,100 @@ public final class BSetting {
             }
         }
 
-        configuration = YamlConfiguration.loadConfiguration(file);
+        //Waits the ongoing write
+        synchronized (writeLock) {
+            configuration = YamlConfiguration.loadConfiguration(file);
+        }
+        dirty = false;
+        fullyDirty = false;
+        dirtySections.clear();
+        loaded = true;
+        complete = true;
 
         BCrateCore.getBLogger().info("Successfully loaded " + getFileName() + " data.");
     }
 
+    /**
+     * Checks if the file has been loaded
+     *
+     * @return true if the file has been loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets the setting file
+     *
+     * @return the setting file
+     */
+    public @Nonnull File getFile() {
+        return new File(BCrateCore.getInstance().getDataFolder(), getFileName() + ".yml");
+    }
+
+    /**
+     * Sets the serializer, called on the main thread to write the data in the configuration before each save
+     *
+     * @param serializer the serializer
+     */
+    public void setSerializer(@Nonnull Runnable serializer) {
+        BValidate.notNull(serializer);
+
+        this.serializer = serializer;
+    }
+
+    /**
+     * Sets the section serializer, called on the main thread to write a dirty section in the configuration before each save
+     * The section is removed from the configuration before, so the serializer only writes it if it still exists
+     *
+     * @param sectionSerializer the section serializer
+     */
+    public void setSectionSerializer(@Nonnull Consumer<String> sectionSerializer) {
+        BValidate.notNull(sectionSerializer);
+
+        this.sectionSerializer = sectionSerializer;
+    }
+
+    /**
+     * Sets the snapshot listener, called on the main thread with each configuration snapshot before it is written
+     *
+     * @param snapshotListener the snapshot listener
+     */
+    public void setSnapshotListener(@Nonnull Consumer<String> snapshotListener) {
+        BValidate.notNull(snapshotListener);
+
+        this.snapshotListener = snapshotListener;
+    }
+
+    /**
+     * Marks the setting as changed, it will be fully serialized and saved by the next flush
+     */
+    public void markDirty() {
+        fullyDirty = true;
+        dirty = true;
+    }
+
+    /**
+     * Marks a section of the setting as changed, only this section will be serialized again by the next flush (main thread only)
+     *
+     * @param section the section path
+     */
+    public void markDirty(@Nonnull String section) {
+        BValidate.notNull(section);
+
+        dirtySections.add(section);
+        dirty = true;
+    }
+
+    /**
+     * Checks if the setting has unsaved changes
+     *
+     * @return true if the setting has unsaved changes, false otherwise
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
     /**
      * Gets a set containing all keys in this section
      *
@@ -153,6 +300,18 @@ public final class BSetting {
         return configuration.getBoolean(path);
     }
 
+    /**
+     * Checks if the path is associated with a boolean and gets the optional boolean
+     *
+     * @param path the path
+     * @return the optional boolean
+     */
+    public @Nonnull Optional<Boolean> isBoolean(@Nonnull String path) {
+        BValidate.notNull(path);
+
+        return Optional.ofNullable(configuration.isBoolean(path) ? configuration.getBoolean(path) : null);
+    }
+
     /**
      * Gets the requested String by path
      *
@@ -165,6 +324,18 @@ public final class BSetting {
         return Optional.ofNullable(configuration.getString(path)).orElseThrow(IllegalPathStateException::new);
     }
 
+    /**
+     * Checks if the path is associated with a String and gets the optional String
+     *
+     * @param path the path
+     * @return the optional String
+     */
+    public @Nonnull Optional<String> isString(@Nonnull String path) {
+        BValidate.notNull(path);
+
+        return Optional.ofNullable(configuration.isString(path) ? configuration.getString(path) : null);
+    }
+
     /**
      * Gets the requested String list by path
      *
@@ -238,14 +409,79 @@ public final class BSetting {
     }
 
     /**
-     * Saves configuration
+     * Serializes the data and snapshots the configuration (main thread only)
+     *
+     * @return the configuration snapshot
+     */
+    private @Nonnull String snapshot() {
+        dirty = false;
+
+        //The sections can only be patched in a configuration holding all the data
+        if (sectionSerializer != null && complete && !fullyDirty) {
+            for (String section : dirtySections) {
+                configuration.set(section, null);
+                sectionSerializer.accept(section);
+            }
+        } else if (serializer != null) {
+            serializer.run();
+            complete = true;
+        }
+        fullyDirty = false;
+        dirtySections.clear();
+
+        String data = configuration.saveToString();
+        if (snapshotListener != null) {
+            snapshotListener.accept(data);
+        }
+
+        return data;
+    }
+
+    /**
+     * Writes a configuration snapshot, unless a newer one has already been written
+     *
+     * @param snapshotGeneration the snapshot generation
+     * @param data               the configuration snapshot
+     */
+    private void write(long snapshotGeneration, @Nonnull String data) {
+        BValidate.notNull(data);
+
+        synchronized (writeLock) {
+            if (snapshotGeneration <= writtenGeneration) {
+                return;
+            }
+
+            try {
+                BAtomicFile.write(getFile().toPath(), data.getBytes(StandardCharsets.UTF_8));
+                writtenGeneration = snapshotGeneration;
+            } catch (IOException e) {
+                BCrateCore.getBLogger().error("Could not save the " + getFileName() + ".yml file!", e);
+            }
+        }
+    }
+
+    /**
+     * Saves configuration asynchronously if it has unsaved changes
+     */
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+
+        long snapshotGeneration = generation.incrementAndGet();
+        String data = snapshot();
+        BScheduler.asyncScheduler().run(() -> write(snapshotGeneration, data));
+    }
+
+    /**
+     * Saves configuration synchronously if it has unsaved changes
      */
     public void save() {
-        try {
-            configuration.save(BCrateCore.getInstance().getDataFolder() + "/" + getFileName() + ".yml");
-        } catch (IOException e) {
-            BCrateCore.getBLogger().error("Could not save the " + getFileName() + ".yml file!", e);
+        if (!dirty) {
+            return;
         }
+
+        write(generation.incrementAndGet(), snapshot());
     }
 
 }
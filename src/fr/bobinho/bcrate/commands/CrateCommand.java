@@ -2,12 +2,18 @@ package fr.bobinho.bcrate.commands;
 
 import co.aikar.commands.annotation.*;
 import fr.bobinho.bcrate.api.command.BCommand;
+import fr.bobinho.bcrate.api.format.BDurationFormat;
 import fr.bobinho.bcrate.api.item.BItemBuilder;
 import fr.bobinho.bcrate.api.location.BLocation;
 import fr.bobinho.bcrate.api.notification.BPlaceHolder;
+import fr.bobinho.bcrate.util.crate.Crate;
 import fr.bobinho.bcrate.util.crate.CrateManager;
+import fr.bobinho.bcrate.util.crate.animation.CrateAnimationEngine;
+import fr.bobinho.bcrate.util.crate.animation.CrateSession;
 import fr.bobinho.bcrate.util.crate.edit.color.Color;
 import fr.bobinho.bcrate.util.crate.edit.size.Size;
+import fr.bobinho.bcrate.util.crate.interaction.CrateInteractionQueue;
+import fr.bobinho.bcrate.util.crate.interaction.CrateQueue;
 import fr.bobinho.bcrate.util.crate.notification.CrateNotification;
 import fr.bobinho.bcrate.util.key.Key;
 import fr.bobinho.bcrate.util.key.KeyManager;
@@ -114,6 +120,83 @@ public final class CrateCommand extends BCommand {
         CrateManager.openEditMenu(sender, name);
     }
 
+    /**
+     * Command crate open
+     */
+    @Syntax("/crate open <name> <amount>")
+    @Subcommand("open")
+    @CommandPermission("crate.open")
+    @Description("Opens a crate several times without animation.")
+    @CommandCompletion("@crates @empty")
+    public void onCommandCrateOpen(Player sender, String name, int amount) {
+
+        Optional<Crate> crate = CrateManager.get(name);
+
+        //Checks if the crate is not registered
+        if (crate.isEmpty()) {
+            sender.sendMessage(CrateNotification.CRATE_NOT_REGISTERED.getNotification(new BPlaceHolder("%name%", name)));
+            return;
+        }
+
+        //Checks if the amount is valid
+        if (amount <= 0) {
+            sender.sendMessage(CrateNotification.UTIL_NOT_A_NUMBER.getNotification(new BPlaceHolder("%number%", String.valueOf(amount))));
+            return;
+        }
+
+        //Opens the crate
+        CrateInteractionQueue.bulkOpen(sender, crate.get(), amount);
+    }
+
+    /**
+     * Command crate info
+     */
+    @Syntax("/crate info <name>")
+    @Subcommand("info")
+    @CommandPermission("crate.info")
+    @Description("Gets the usage of a crate.")
+    @CommandCompletion("@crates @empty")
+    public void onCommandCrateInfo(Player sender, String name) {
+
+        Optional<Crate> crate = CrateManager.get(name);
+
+        //Checks if the crate is not registered
+        if (crate.isEmpty()) {
+            sender.sendMessage(CrateNotification.CRATE_NOT_REGISTERED.getNotification(new BPlaceHolder("%name%", name)));
+            return;
+        }
+
+        //Messages
+        CrateQueue queue = crate.get().queue();
+        sender.sendMessage(CrateNotification.CRATE_INFO.getNotification(new BPlaceHolder("%name%", name)));
+        sender.sendMessage(CrateNotification.CRATE_INFO_ENGINE.getNotification(
+                new BPlaceHolder("%size%", String.valueOf(CrateAnimationEngine.size())),
+                new BPlaceHolder("%last-tick%", String.valueOf(CrateAnimationEngine.getLastTickNanos() / 1000)),
+                new BPlaceHolder("%average-tick%", String.valueOf(CrateAnimationEngine.getAverageTickNanos() / 1000)),
+                new BPlaceHolder("%max-tick%", String.valueOf(CrateAnimationEngine.getMaxTickNanos() / 1000)),
+                new BPlaceHolder("%postponed%", String.valueOf(CrateAnimationEngine.getPostponedSteps())),
+                new BPlaceHolder("%failed%", String.valueOf(CrateAnimationEngine.getFailedSteps()))));
+        sender.sendMessage(CrateNotification.CRATE_INFO_STATE.getNotification(
+                new BPlaceHolder("%phase%", crate.get().state().getPhase().name().toLowerCase()),
+                new BPlaceHolder("%state%", (crate.get().isSuspended() ? CrateNotification.CRATE_INFO_SUSPENDED : CrateNotification.CRATE_INFO_ANIMATED).getNotification())));
+
+        //The current opening, a long one may be stuck
+        CrateSession session = crate.get().state().getSession();
+        if (session != null) {
+            sender.sendMessage(CrateNotification.CRATE_INFO_SESSION.getNotification(
+                    new BPlaceHolder("%player%", session.getPlayer().getName()),
+                    new BPlaceHolder("%duration%", BDurationFormat.getAsMinuteSecondFormat((System.currentTimeMillis() - session.getStartedAt()) / 1000))));
+        }
+
+        sender.sendMessage(CrateNotification.CRATE_INFO_QUEUE.getNotification(
+                new BPlaceHolder("%size%", String.valueOf(queue.size())),
+                new BPlaceHolder("%max-size%", String.valueOf(queue.getMaxDepth())),
+                new BPlaceHolder("%head-wait%", BDurationFormat.getAsMinuteSecondFormat(queue.getHeadWaitMillis() / 1000)),
+                new BPlaceHolder("%served%", String.valueOf(queue.getServed())),
+                new BPlaceHolder("%average-wait%", BDurationFormat.getAsMinuteSecondFormat(queue.getAverageWaitMillis() / 1000)),
+                new BPlaceHolder("%max-wait%", BDurationFormat.getAsMinuteSecondFormat(queue.getMaxWaitMillis() / 1000))));
+    }
+
     /**
      * Command crate reload
      */
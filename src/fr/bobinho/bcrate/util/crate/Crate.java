@@ -1,13 +1,25 @@
 package fr.bobinho.bcrate.util.crate;
 
-import fr.bobinho.bcrate.api.entity.BEntity;
+import fr.bobinho.bcrate.BCrateCore;
 import fr.bobinho.bcrate.api.entity.base.BArmorStandEntity;
-import fr.bobinho.bcrate.api.entity.type.BArmoredEntity;
-import fr.bobinho.bcrate.api.metadata.BMetadata;
-import fr.bobinho.bcrate.api.scheduler.BScheduler;
+import fr.bobinho.bcrate.api.item.BItemBuilder;
+import fr.bobinho.bcrate.api.notification.BPlaceHolder;
+import fr.bobinho.bcrate.api.renderer.BRendererGroup;
+import fr.bobinho.bcrate.api.sampler.BSampler;
+import fr.bobinho.bcrate.api.setting.BSetting;
 import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.animation.CrateAnimationEngine;
+import fr.bobinho.bcrate.util.crate.animation.CrateAnimator;
+import fr.bobinho.bcrate.util.crate.animation.CratePhase;
+import fr.bobinho.bcrate.util.crate.animation.CrateOpening;
+import fr.bobinho.bcrate.util.crate.animation.CrateSession;
+import fr.bobinho.bcrate.util.crate.animation.CrateState;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateOrientation;
 import fr.bobinho.bcrate.util.crate.edit.color.Color;
 import fr.bobinho.bcrate.util.crate.edit.size.Size;
+import fr.bobinho.bcrate.util.crate.interaction.CrateInteractionQueue;
+import fr.bobinho.bcrate.util.crate.interaction.CrateQueue;
+import fr.bobinho.bcrate.util.crate.notification.CrateNotification;
 import fr.bobinho.bcrate.util.crate.ux.CrateEditMenu;
 import fr.bobinho.bcrate.util.crate.ux.CratePrizeMenu;
 import fr.bobinho.bcrate.util.crate.ux.CrateShowMenu;
@@ -19,14 +31,21 @@ import fr.bobinho.bcrate.wrapper.MonoValuedAttribute;
 import fr.bobinho.bcrate.wrapper.MultiValuedAttribute;
 import fr.bobinho.bcrate.wrapper.ReadOnlyMonoValuedAttribute;
 import fr.bobinho.bcrate.wrapper.UpperBoundedMultiValuedAttribute;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Class representing the crate
@@ -49,8 +68,14 @@ public abstract class Crate {
     private final ReadOnlyMonoValuedAttribute<CrateShowMenu> showMenu;
     private final ReadOnlyMonoValuedAttribute<CrateStructureMenu> structureMenu;
     private final MultiValuedAttribute<BArmorStandEntity> structure;
-    private final BScheduler animation;
-    private final BMetadata metadata;
+    private final CrateState state;
+    private final CrateOrientation orientation;
+    private final CrateAnimator animator;
+    private final BRendererGroup renderer;
+    private final List<CrateOpening> openings = new ArrayList<>();
+    private final CrateQueue queue = new CrateQueue();
+    private volatile BSampler<Prize> sampler;
+    private int suspendedSteps;
 
     /**
      * Creates a new crate
@@ -83,10 +108,14 @@ public abstract class Crate {
         this.prizeMenu = new ReadOnlyMonoValuedAttribute<>(new CratePrizeMenu(this));
         this.showMenu = new ReadOnlyMonoValuedAttribute<>(new CrateShowMenu(this));
         this.structureMenu = new ReadOnlyMonoValuedAttribute<>(new CrateStructureMenu(this));
-        this.metadata = new BMetadata().add("spine").set("spine:degree", 0.0F);
-        this.animation = BScheduler.syncScheduler().every(2);
-
-        this.run();
+        this.state = new CrateState();
+        this.orientation = CrateOrientation.fromDirection(direction);
+        this.renderer = new BRendererGroup(location);
+        structure.forEach(part -> renderer.add(part.getRenderer()));
+        this.animator = new CrateAnimator(this, orientation, structure, state);
+
+        this.animator.prepare();
+        CrateAnimationEngine.register(this);
     }
 
     /**
@@ -212,33 +241,222 @@ public abstract class Crate {
     }
 
     /**
-     * Gets the metadata wrapper
+     * Gets the renderer of the whole structure
+     *
+     * @return the renderer
+     */
+    public @Nonnull BRendererGroup renderer() {
+        return renderer;
+    }
+
+    /**
+     * Gets the orientation
+     *
+     * @return the orientation
+     */
+    public @Nonnull CrateOrientation orientation() {
+        return orientation;
+    }
+
+    /**
+     * Gets the animation state
+     *
+     * @return the animation state
+     */
+    public @Nonnull CrateState state() {
+        return state;
+    }
+
+    /**
+     * Checks if the openings of the crate are instanced, read from the config
+     *
+     * @return true if the openings are instanced, false otherwise
+     */
+    public boolean isInstanced() {
+        BSetting configuration = BCrateCore.getConfigSetting();
+
+        return configuration.isBoolean("animation.instanced-crates." + name.get())
+                .orElse(configuration.isBoolean("animation.instanced").orElse(false));
+    }
+
+    /**
+     * Checks if the players clicking the crate while it is used are queued, read from the config
+     *
+     * @return true if the players are queued, false otherwise
+     */
+    public boolean isQueued() {
+        BSetting configuration = BCrateCore.getConfigSetting();
+
+        return configuration.isBoolean("animation.queue-crates." + name.get())
+                .orElse(configuration.isBoolean("animation.queue").orElse(true));
+    }
+
+    /**
+     * Gets the waiting queue
+     *
+     * @return the waiting queue
+     */
+    public @Nonnull CrateQueue queue() {
+        return queue;
+    }
+
+    /**
+     * Empties the waiting queue, the queued players can open crates again
+     */
+    public void clearQueue() {
+        Optional<UUID> next;
+        while ((next = queue.poll()).isPresent()) {
+            PlayerManager.openCrate(next.get(), false);
+        }
+    }
+
+    /**
+     * Gets the session of the player, on the crate or on one of its instanced openings
      *
-     * @return the metadata wrapper
+     * @param player the player
+     * @return the optional session
      */
-    public BMetadata metadata() {
-        return metadata;
+    public @Nonnull Optional<CrateSession> getSession(@Nonnull Player player) {
+        BValidate.notNull(player);
+
+        CrateSession session = state.getSession();
+        if (session != null && session.getPlayer().equals(player)) {
+            return Optional.of(session);
+        }
+
+        return openings.stream()
+                .map(opening -> opening.state().getSession())
+                .filter(current -> current != null && current.getPlayer().equals(player))
+                .findFirst();
     }
 
     /**
-     * Gets the animation wrapper
+     * Stops an instanced opening, without giving the prizes
      *
-     * @return the animation wrapper
+     * @param opening the opening
      */
-    public BScheduler animation() {
-        return animation;
+    private void stop(@Nonnull CrateOpening opening) {
+        BValidate.notNull(opening);
+
+        opening.remove();
+        renderer.getRenderer().removeBlacklist(opening.getPlayer());
+        PlayerManager.openCrate(opening.getPlayer().getUniqueId(), false);
     }
 
     /**
-     * Launchs the animation to open the crate
+     * Stops the instanced opening of the player, without giving the prizes
+     *
+     * @param player the player
      */
-    protected void open() {
-        structure.get(0).clearEquipments().render();
-        structure.get(1).setEquipment(BArmoredEntity.Equipment.HELMET, skin().get(1)).render();
+    public void stopOpening(@Nonnull Player player) {
+        BValidate.notNull(player);
 
-        metadata.remove("spine").remove("waitOpen").add("open").set("open:degree", 0);
+        openings.removeIf(opening -> {
+            if (!opening.getPlayer().equals(player)) {
+                return false;
+            }
 
-        location.get().getWorld().playSound(location.get(), Sound.ENTITY_FIREWORK_ROCKET_SHOOT, 1, 2);
+            stop(opening);
+            return true;
+        });
+    }
+
+    /**
+     * Stops all instanced openings, without giving the prizes
+     */
+    public void stopOpenings() {
+        openings.forEach(this::stop);
+        openings.clear();
+    }
+
+    /**
+     * Animates the instanced openings, and removes the finished ones
+     */
+    private void animateOpenings() {
+        for (Iterator<CrateOpening> iterator = openings.iterator(); iterator.hasNext(); ) {
+            CrateOpening opening = iterator.next();
+
+            if (!opening.step()) {
+                opening.remove();
+                iterator.remove();
+
+                //Shows the shared structure again to the opener
+                renderer.getRenderer().removeBlacklist(opening.getPlayer());
+            }
+        }
+    }
+
+    /**
+     * Gets the prize sampler, builds it if the prizes have changed
+     *
+     * @return the prize sampler
+     */
+    public @Nonnull BSampler<Prize> sampler() {
+        BSampler<Prize> current = sampler;
+
+        if (current == null) {
+
+            //Each prize receives its chance plus an equal share of the fallback weight (1.0)
+            double fallback = 1.0D / Math.max(1, prizes.size());
+            current = new BSampler<>(prizes.get(), prize -> prize.chance().get() + fallback);
+            sampler = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * Invalidates the prize sampler
+     */
+    public void invalidateSampler() {
+        sampler = null;
+    }
+
+    /**
+     * Checks if the crate is suspended, an idle crate without shown viewers is not animated
+     *
+     * @return true if the crate is suspended, false otherwise
+     */
+    public boolean isSuspended() {
+        return suspendedSteps > 0;
+    }
+
+    /**
+     * Animates the crate, called by the animation engine
+     */
+    public void animate() {
+
+        //Instanced openings are only seen by their opener, they are always animated
+        if (!openings.isEmpty()) {
+            animateOpenings();
+        }
+
+        //Idle crate without shown viewers: skips the step
+        if (state.getPhase() == CratePhase.SPINNING && !renderer.getRenderer().isShown()) {
+
+            //Looks for new viewers every 10 steps
+            if (suspendedSteps++ % 10 != 0) {
+                return;
+            }
+
+            renderer.render();
+            if (!renderer.getRenderer().isShown()) {
+                return;
+            }
+        }
+
+        //Resumes the spine where it would have been without suspension
+        if (suspendedSteps > 0) {
+            state.setSpineFrame(state.getSpineFrame() + suspendedSteps - 1);
+            suspendedSteps = 0;
+        }
+
+        animator.step();
+
+        //The next queued player starts as soon as the crate is back to spinning
+        if (state.isIdle() && !queue.isEmpty()) {
+            CrateInteractionQueue.startNext(this);
+        }
     }
 
     /**
@@ -246,11 +464,28 @@ public abstract class Crate {
      *
      * @param player the player
      * @param prizes the prizes
+     * @return true if the player has claimed the crate, false if another player was faster
      */
-    public void wait(@Nonnull Player player, @Nonnull List<Prize> prizes) {
+    public boolean wait(@Nonnull Player player, @Nonnull List<Prize> prizes) {
         BValidate.notNull(player);
         BValidate.notNull(prizes);
 
+        CrateSession session = new CrateSession(player, prizes);
+
+        //Instanced opening: the opener sees its own structure instead of the shared one
+        if (isInstanced()) {
+            CrateOpening opening = new CrateOpening(this, player);
+            opening.start(session);
+
+            openings.add(opening);
+            renderer.getRenderer().addBlacklist(player);
+        }
+
+        //Claims the crate before consuming the key
+        else if (!state.claim(session)) {
+            return false;
+        }
+
         PlayerManager.openCrate(player.getUniqueId(), true);
 
         boolean finded = false;
@@ -271,17 +506,112 @@ public abstract class Crate {
             PlayerManager.removeKey(player.getUniqueId(), key.get(), 1);
         }
 
-        structure.get().forEach(BEntity::render);
-        metadata.add("waitOpen").set("prizes", prizes).set("player", player);
+        renderer.render();
+
+        return true;
+    }
+
+    /**
+     * Gives the prizes of the session to the player and announces them
+     *
+     * @param session the session
+     */
+    public void reward(@Nonnull CrateSession session) {
+        BValidate.notNull(session);
+
+        //Marked first, a player quitting from now on has nothing left to recover
+        session.rewarded();
+
+        //The prizes of a player who has left are recovered on the next join
+        Player player = session.getPlayer();
+        if (!player.isOnline()) {
+            return;
+        }
+
+        List<Prize> prizes = session.getPrizes();
+
+        //Messages
+        player.sendMessage(CrateNotification.CRATE_WON.getNotification());
+        for (Prize prize : prizes) {
+            ItemStack item = prize.item().get();
+            player.sendMessage(CrateNotification.CRATE_PRIZE_INFO.getNotification(
+                    new BPlaceHolder("%amount%", String.valueOf(item.getAmount())),
+                    new BPlaceHolder("%name%", getItemName(item))));
+
+            if (prize.rarity().get()) {
+                Bukkit.getOnlinePlayers().forEach(receiver -> receiver.sendMessage(CrateNotification.CRATE_PRIZE_INFO_GLOBAL.getNotification(
+                        new BPlaceHolder("%name%", player.getName()),
+                        new BPlaceHolder("%amount%", String.valueOf(item.getAmount())),
+                        new BPlaceHolder("%item%", getItemName(item)))));
+            }
+        }
+
+        //Gives prizes
+        player.getInventory().addItem(prizes.stream().map(prize -> prize.item().get()).toArray(ItemStack[]::new));
     }
 
     /**
-     * Restarts the crate and give prizes to the last player
+     * Rewards the player for several plays at once, with a single summary
+     *
+     * @param player the player
+     * @param plays  the number of plays
+     * @param prizes the prizes of all plays
      */
-    protected abstract void restart();
+    public void reward(@Nonnull Player player, int plays, @Nonnull List<Prize> prizes) {
+        BValidate.notNull(player);
+        BValidate.notNull(prizes);
+
+        //Merges the similar prizes, so each kind of prize is announced and given once
+        Map<ItemStack, Integer> amounts = new LinkedHashMap<>();
+        Set<ItemStack> rares = new HashSet<>();
+        for (Prize prize : prizes) {
+            ItemStack kind = prize.item().get().clone();
+            kind.setAmount(1);
+
+            amounts.merge(kind, prize.item().get().getAmount(), Integer::sum);
+            if (prize.rarity().get()) {
+                rares.add(kind);
+            }
+        }
+
+        //Messages
+        player.sendMessage(CrateNotification.CRATE_BULK_WON.getNotification(
+                new BPlaceHolder("%amount%", String.valueOf(plays)),
+                new BPlaceHolder("%name%", name.get())));
+        for (Map.Entry<ItemStack, Integer> entry : amounts.entrySet()) {
+            String item = getItemName(entry.getKey());
+            String amount = String.valueOf(entry.getValue());
+
+            player.sendMessage(CrateNotification.CRATE_PRIZE_INFO.getNotification(
+                    new BPlaceHolder("%amount%", amount),
+                    new BPlaceHolder("%name%", item)));
+
+            if (rares.contains(entry.getKey())) {
+                Bukkit.getOnlinePlayers().forEach(receiver -> receiver.sendMessage(CrateNotification.CRATE_PRIZE_INFO_GLOBAL.getNotification(
+                        new BPlaceHolder("%name%", player.getName()),
+                        new BPlaceHolder("%amount%", amount),
+                        new BPlaceHolder("%item%", item))));
+            }
+        }
+
+        //Gives prizes, the space was checked before but nothing is lost if it was not enough
+        player.getInventory().addItem(amounts.entrySet().stream()
+                        .map(entry -> new BItemBuilder(entry.getKey()).amount(entry.getValue()).build())
+                        .toArray(ItemStack[]::new))
+                .values()
+                .forEach(item -> player.getWorld().dropItem(player.getLocation(), item));
+    }
 
     /**
-     * Runs the crate
+     * Gets the displayed name of an item
+     *
+     * @param item the item
+     * @return the displayed name
      */
-    protected abstract void run();
+    private static @Nonnull String getItemName(@Nonnull ItemStack item) {
+        BValidate.notNull(item);
+
+        return (item.hasItemMeta() && item.getItemMeta().hasDisplayName()) ? item.getItemMeta().getDisplayName() : item.getType().name().replace("_", " ");
+    }
+
 }
\ No newline at end of file
@@ -4,13 +4,21 @@ import fr.bobinho.bcrate.BCrateCore;
 import fr.bobinho.bcrate.api.entity.BEntity;
 import fr.bobinho.bcrate.api.entity.base.BArmorStandEntity;
 import fr.bobinho.bcrate.api.entity.type.BArmoredEntity;
+import fr.bobinho.bcrate.api.index.BIntIndex;
 import fr.bobinho.bcrate.api.location.BLocation;
+import fr.bobinho.bcrate.api.scheduler.BScheduler;
 import fr.bobinho.bcrate.api.setting.BSetting;
 import fr.bobinho.bcrate.api.stream.IndexedStream;
 import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.animation.CrateAnimationEngine;
+import fr.bobinho.bcrate.util.crate.interaction.CrateInteractionQueue;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateKeyframe;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateKeyframes;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateOrientation;
 import fr.bobinho.bcrate.util.crate.edit.color.Color;
 import fr.bobinho.bcrate.util.crate.edit.size.Size;
 import fr.bobinho.bcrate.util.crate.listener.CrateListener;
+import fr.bobinho.bcrate.util.crate.snapshot.CrateSnapshot;
 import fr.bobinho.bcrate.util.crate.type.CrateEW;
 import fr.bobinho.bcrate.util.crate.type.CrateNS;
 import fr.bobinho.bcrate.util.key.Key;
@@ -27,9 +35,12 @@ import org.bukkit.inventory.ItemStack;
 
 import javax.annotation.Nonnull;
 import java.awt.geom.IllegalPathStateException;
-import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -44,13 +55,19 @@ public class CrateManager {
      * Fields
      */
     private static final HashMap<String, Crate> crates = new HashMap<>();
+    private static final BIntIndex<Crate> structures = new BIntIndex<>();
     private static final BSetting configuration = BCrateCore.getCrateSetting();
 
     /**
      * Registers the crate manager
      */
     public static void register() {
+        configuration.setSerializer(CrateManager::serialize);
+        configuration.setSectionSerializer(CrateManager::serialize);
+        configuration.setSnapshotListener(CrateManager::snapshot);
         load();
+        CrateAnimationEngine.start();
+        CrateInteractionQueue.start();
         CrateListener.registerEvents();
     }
 
@@ -58,10 +75,14 @@ public class CrateManager {
      * Unregisters the crate manager
      */
     public static void unregister() {
+        CrateInteractionQueue.stop();
+        CrateAnimationEngine.stop();
         crates.values().forEach(crate -> {
+            crate.stopOpenings();
+            crate.clearQueue();
             crate.structure().stream().forEach(BArmorStandEntity::remove);
         });
-        save();
+        configuration.save();
     }
 
     /**
@@ -122,11 +143,14 @@ public class CrateManager {
         BValidate.notNull(key);
         BValidate.notNull(skin);
 
-        crates.put(name, player.getFacing() == BlockFace.NORTH || player.getFacing() == BlockFace.SOUTH ?
-                new CrateNS(name, size, location, color, key, skin, createStructure(location, true))
+        Crate crate = player.getFacing() == BlockFace.NORTH || player.getFacing() == BlockFace.SOUTH ?
+                new CrateNS(name, size, location, color, key, skin, createStructure(location, CrateOrientation.NS))
                 :
-                new CrateEW(name, size, location, color, key, skin, createStructure(location, false)));
-        save();
+                new CrateEW(name, size, location, color, key, skin, createStructure(location, CrateOrientation.EW));
+
+        crates.put(name, crate);
+        index(crate);
+        configuration.markDirty(name);
     }
 
     /**
@@ -138,11 +162,14 @@ public class CrateManager {
         BValidate.notNull(name);
 
         get(name).ifPresent(crate -> {
+            crate.stopOpenings();
+            crate.clearQueue();
             crate.structure().stream().forEach(BEntity::remove);
             crates.remove(crate.name().get());
-            crate.animation().stop();
+            structures.remove(crate);
+            CrateAnimationEngine.unregister(crate);
         });
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -173,10 +200,11 @@ public class CrateManager {
                     .filter(prize -> prize.slot().get() >= size.getDimension())
                     .toList());
             crate.prizes().resize(size.getDimension());
+            crate.invalidateSampler();
             crate.prizeMenu().get().resize(size.getDimension());
             crate.showMenu().get().resize(size.getDimension());
         });
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -190,7 +218,7 @@ public class CrateManager {
         BValidate.notNull(color);
 
         get(name).ifPresent(crate -> crate.color().set(color));
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -204,7 +232,7 @@ public class CrateManager {
         BValidate.notNull(key);
 
         get(name).ifPresent(crate -> crate.key().set(key));
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -220,12 +248,13 @@ public class CrateManager {
 
         get(name).ifPresent(crate -> {
             crate.skin().set((slot - 10) / 2, skin);
+            BArmoredEntity.invalidateEquipments();
 
             if (slot == 10) {
                 crate.structure().get(0).setEquipment(BArmoredEntity.Equipment.HELMET, skin).render();
             }
         });
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -240,7 +269,8 @@ public class CrateManager {
         BValidate.notNull(crate);
 
         crate.prizes().add(new Prize(item, item, slot, item.getType() == Material.BARRIER ? 0 : 50));
-        save();
+        crate.invalidateSampler();
+        markDirty(crate, slot);
     }
 
     /**
@@ -253,66 +283,56 @@ public class CrateManager {
         BValidate.notNull(crate);
 
         PrizeManager.get(crate, slot).ifPresent(prize -> crate.prizes().remove(prize));
-        save();
+        crate.invalidateSampler();
+        markDirty(crate, slot);
     }
 
     /**
      * Creates the structure
      *
-     * @param location the location
-     * @param isNS     the direction
+     * @param location    the location
+     * @param orientation the orientation
      * @return the structure
      */
-    private static @Nonnull List<BArmorStandEntity> createStructure(@Nonnull Location location, boolean isNS) {
+    public static @Nonnull List<BArmorStandEntity> createStructure(@Nonnull Location location, @Nonnull CrateOrientation orientation) {
         BValidate.notNull(location);
+        BValidate.notNull(orientation);
+
+        CrateKeyframes keyframes = CrateKeyframes.of(orientation);
 
-        Point2D.Double[] move = {
-                new Point2D.Double(0.0D, 0.0D),
-                new Point2D.Double(0.06D, 0.081D),
-                new Point2D.Double(0.13D, 0.15D),
-                new Point2D.Double(0.22D, 0.21D),
-                new Point2D.Double(0.31D, 0.26D),
-                new Point2D.Double(0.41D, 0.282D),
-                new Point2D.Double(0.512D, 0.288D),
-                new Point2D.Double(0.615D, 0.278D),
-                new Point2D.Double(0.715D, 0.249D),
-                new Point2D.Double(0.805D, 0.201D),
-                new Point2D.Double(0.89D, 0.14D),
-                new Point2D.Double(0.96D, 0.064D),
-                new Point2D.Double(1.015D, -0.02D),
-                new Point2D.Double(1.06D, -0.12D)
-        };
-
-        return IntStream.range(0, 32).mapToObj(i -> {
-            float angle = (float) ((i - 4) * 10 % 140);
-            int moveIndex = (Math.max(0, i - 4) % 14);
-            double moveX = move[moveIndex].getX();
-            double moveY = move[moveIndex].getY();
-
-            Location newLocation = isNS ?
-                    location.clone().add(i < 4 ? 0 : (i < 18 ? -moveY : moveY), i < 4 ? 0 : moveX, 0)
-                    :
-                    location.clone().add(0, i < 4 ? 0 : moveX, i < 4 ? 0 : (i < 18 ? moveY : -moveY));
-
-            if (i == 2 || i == 3) {
-                return new BArmorStandEntity(newLocation);
+        return IntStream.range(0, CrateKeyframes.PARTS).mapToObj(i -> {
+            CrateKeyframe offset = keyframes.getStructure(i);
+            BArmorStandEntity part = new BArmorStandEntity(location.clone().add(offset.getX(), offset.getY(), offset.getZ()));
+            part.setRelativeMove(true);
+
+            float[] pose = keyframes.getPose(i);
+            if (pose != null) {
+                part.setHeadPose(pose[0], pose[1], pose[2]);
             }
 
-            return new BArmorStandEntity(newLocation)
-                    .setHeadPose(isNS ? 0 : (i < 4 ? 0 : (i < 18 ? -angle : angle)), isNS ? 90 : 0, isNS ? (i < 4 ? 0 : (i < 18 ? angle : -angle)) : 0);
+            return part;
         }).toList();
     }
 
     /**
-     * Checks if the entity is from a structure
+     * Indexes the structure entity ids of the crate
      *
-     * @return true if the entity is from a structure, false otherwise
+     * @param crate the crate
      */
-    public static Optional<Crate> isFromStructure(int id) {
+    private static void index(@Nonnull Crate crate) {
+        BValidate.notNull(crate);
 
-        return crates.values().stream()
-                .filter(crate -> crate.structure().stream().anyMatch(armorStand -> armorStand.getId() == id))
-                .findFirst();
+        structures.put(crate, crate.structure().stream().mapToInt(BEntity::getId).toArray());
+    }
+
+    /**
+     * Gets the optional crate whose structure contains the entity (safe from the netty thread)
+     *
+     * @param id the entity id
+     * @return the optional crate
+     */
+    public static Optional<Crate> isFromStructure(int id) {
+        return structures.get(id);
     }
 
     /**
@@ -372,7 +392,7 @@ public class CrateManager {
     public static boolean canPlay(@Nonnull String name) {
         BValidate.notNull(name);
 
-        return get(name).map(crate -> !crate.metadata().has("open") && !crate.metadata().has("waitOpen")).orElse(false);
+        return get(name).map(crate -> crate.isInstanced() || crate.state().isIdle()).orElse(false);
     }
 
     /**
@@ -384,46 +404,73 @@ public class CrateManager {
     public static @Nonnull List<Prize> play(@Nonnull String name) {
         BValidate.notNull(name);
 
-        Random random = new Random();
+        return get(name).map(Crate::sampler)
+                .filter(sampler -> !sampler.isEmpty())
+                .map(sampler -> {
+                    Random random = ThreadLocalRandom.current();
 
-        return get(name).map(crate -> IntStream.range(0, 2).mapToObj(i -> {
-            double picked = random.nextDouble() * (1.0D + crate.prizes().stream()
-                    .mapToDouble(prize -> prize.chance().get())
-                    .sum());
+                    return List.of(sampler.sample(random), sampler.sample(random));
+                })
+                .orElse(Collections.emptyList());
+    }
 
-            return crate.prizes().stream().filter(new Predicate<>() {
-                double sum = 0;
+    /**
+     * Plays with the crate several times in a single batch
+     *
+     * @param name   the name
+     * @param amount the number of plays
+     * @return the rewards of all plays
+     */
+    public static @Nonnull List<Prize> play(@Nonnull String name, int amount) {
+        BValidate.notNull(name);
 
-                @Override
-                public boolean test(Prize prize) {
-                    sum = sum + prize.chance().get();
-                    return sum >= picked;
-                }
+        return get(name).map(Crate::sampler)
+                .filter(sampler -> !sampler.isEmpty())
+                .map(sampler -> {
+                    Random random = ThreadLocalRandom.current();
 
-            }).findFirst().orElse(crate.prizes().get(random.nextInt(crate.prizes().size())));
+                    List<Prize> prizes = new ArrayList<>(2 * Math.max(0, amount));
+                    for (int i = 0; i < 2 * amount; i++) {
+                        prizes.add(sampler.sample(random));
+                    }
 
-        }).toList()).orElse(Collections.emptyList());
+                    return prizes;
+                })
+                .orElse(Collections.emptyList());
     }
 
     /**
      * Reloads all crates
      */
     public static void reload() {
+        configuration.save();
         crates.values().forEach(crate -> {
+            crate.stopOpenings();
+            crate.clearQueue();
             crate.structure().stream().forEach(BEntity::remove);
-            crate.animation().stop();
+            CrateAnimationEngine.unregister(crate);
         });
         crates.clear();
+        structures.clear();
         configuration.initialize();
 
         load();
     }
 
     /**
-     * Loads all crates
+     * Loads all crates, from the binary snapshot if it matches the crate file
      */
     public static void load() {
         crates.clear();
+        structures.clear();
+
+        if (!configuration.isLoaded() && isSnapshotEnabled() && loadSnapshot()) {
+            return;
+        }
+
+        if (!configuration.isLoaded()) {
+            configuration.initialize();
+        }
 
         //Loads all crates
         configuration.getKeys().forEach(crate -> {
@@ -445,38 +492,215 @@ public class CrateManager {
             List<ItemStack> skin = configuration.getItemStackList(crate + ".skin");
             String direction = configuration.getString(crate + ".direction");
 
-            crates.put(crate, direction.equals("NS") ?
-                    new CrateNS(crate, size, prizes, location, color, key, skin, createStructure(location, true))
-                    :
-                    new CrateEW(crate, size, prizes, location, color, key, skin, createStructure(location, false)));
+            load(crate, size, prizes, location, color, key, skin, direction);
         });
+
+        //Writes a snapshot matching the crate file just read, the crate file itself is left untouched
+        if (isSnapshotEnabled() && !crates.isEmpty()) {
+            try {
+                snapshot(CrateSnapshot.checksum(Files.readAllBytes(configuration.getFile().toPath())));
+            } catch (IOException e) {
+                BCrateCore.getBLogger().error("Could not create the crate snapshot!", e);
+            }
+        }
     }
 
     /**
-     * Saves all crates
+     * Loads a crate
+     *
+     * @param name      the name
+     * @param size      the size
+     * @param prizes    the prizes
+     * @param location  the location
+     * @param color     the color
+     * @param key       the key
+     * @param skin      the skin
+     * @param direction the direction
      */
-    public static void save() {
-        configuration.clear();
+    private static void load(@Nonnull String name, @Nonnull Size size, @Nonnull List<Prize> prizes, @Nonnull Location location, @Nonnull Color color,
+                             @Nonnull Key key, @Nonnull List<ItemStack> skin, @Nonnull String direction) {
+        Crate loaded = direction.equals("NS") ?
+                new CrateNS(name, size, prizes, location, color, key, skin, createStructure(location, CrateOrientation.NS))
+                :
+                new CrateEW(name, size, prizes, location, color, key, skin, createStructure(location, CrateOrientation.EW));
 
-        //Saves all crates
-        crates.values().forEach(crate -> {
-            configuration.set(crate.name().get() + ".size", crate.size().get().name());
-            configuration.set(crate.name().get() + ".location", BLocation.getAsString(crate.location().get()));
-            configuration.set(crate.name().get() + ".color", crate.color().get().name());
-            configuration.set(crate.name().get() + ".key", crate.key().get().name().get());
-            configuration.set(crate.name().get() + ".skin", crate.skin().get());
-            configuration.set(crate.name().get() + ".direction", crate.direction().get());
-
-            crate.prizes().get().forEach(prize -> {
-                configuration.set(crate.name().get() + ".prizes." + prize.slot().get() + ".item", prize.item().get());
-                configuration.set(crate.name().get() + ".prizes." + prize.slot().get() + ".skin", prize.skin().get());
-                configuration.set(crate.name().get() + ".prizes." + prize.slot().get() + ".chance", prize.chance().get());
-                configuration.set(crate.name().get() + ".prizes." + prize.slot().get() + ".rarity", prize.rarity().get());
-                configuration.set(crate.name().get() + ".prizes." + prize.slot().get() + ".tags", prize.tags().get().stream().map(tag -> tag.name().get()).collect(Collectors.toList()));
+        crates.put(name, loaded);
+        index(loaded);
+    }
+
+    /**
+     * Checks if the crates are also saved as a binary snapshot, read from the config
+     *
+     * @return true if the crates are also saved as a binary snapshot, false otherwise
+     */
+    private static boolean isSnapshotEnabled() {
+        return BCrateCore.getConfigSetting().isBoolean("crate-snapshot").orElse(false);
+    }
+
+    /**
+     * Gets the binary snapshot file
+     *
+     * @return the binary snapshot file
+     */
+    private static @Nonnull File getSnapshotFile() {
+        return new File(BCrateCore.getInstance().getDataFolder(), "crate.bin");
+    }
+
+    /**
+     * Loads all crates from the binary snapshot, without parsing the crate file
+     *
+     * @return true if the crates were loaded, false if the snapshot is missing or does not match the crate file
+     */
+    private static boolean loadSnapshot() {
+        File file = configuration.getFile();
+        if (!file.exists()) {
+            return false;
+        }
+
+        try {
+            Optional<byte[]> data = CrateSnapshot.read(getSnapshotFile());
+            if (data.isEmpty()) {
+                return false;
+            }
+
+            Optional<List<CrateSnapshot.Entry>> entries = CrateSnapshot.decode(data.get(), CrateSnapshot.checksum(Files.readAllBytes(file.toPath())));
+            if (entries.isEmpty()) {
+                BCrateCore.getBLogger().info("The crate snapshot is outdated, the crate file is loaded instead.");
+                return false;
+            }
+
+            entries.get().forEach(entry -> load(entry.getName(), entry.getSize(), entry.getPrizes(), BLocation.getAsLocation(entry.getLocation()),
+                    entry.getColor(), entry.getKey(), entry.getSkin(), entry.getDirection()));
+        } catch (Exception e) {
+            BCrateCore.getBLogger().error("Could not load the crate snapshot, the crate file is loaded instead!", e);
+            crates.values().forEach(crate -> {
+                crate.structure().stream().forEach(BEntity::remove);
+                CrateAnimationEngine.unregister(crate);
             });
-        });
+            crates.clear();
+            structures.clear();
 
-        configuration.save();
+            return false;
+        }
+
+        BCrateCore.getBLogger().info("Successfully loaded " + crates.size() + " crates from the crate snapshot.");
+        return true;
+    }
+
+    /**
+     * Writes the binary snapshot along with the crate file (main thread only)
+     *
+     * @param data the crate file data
+     */
+    private static void snapshot(@Nonnull String data) {
+        BValidate.notNull(data);
+
+        snapshot(CrateSnapshot.checksum(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes the binary snapshot of the crates (main thread only)
+     *
+     * @param checksum the checksum of the crate file holding the same crates
+     */
+    private static void snapshot(long checksum) {
+        if (!isSnapshotEnabled()) {
+            return;
+        }
+
+        byte[] snapshot;
+        long generation = CrateSnapshot.nextGeneration();
+        try {
+            snapshot = CrateSnapshot.encode(crates.values(), checksum);
+        } catch (Exception e) {
+            BCrateCore.getBLogger().error("Could not create the crate snapshot!", e);
+            return;
+        }
+
+        //No task can be scheduled once the plugin is disabled, the last save writes the snapshot itself
+        if (!BCrateCore.getInstance().isEnabled()) {
+            CrateSnapshot.write(getSnapshotFile(), generation, snapshot);
+            return;
+        }
+
+        BScheduler.asyncScheduler().run(() -> CrateSnapshot.write(getSnapshotFile(), generation, snapshot));
+    }
+
+    /**
+     * Marks a prize of a crate as changed, only this prize will be serialized again
+     *
+     * @param crate the crate
+     * @param slot  the prize slot
+     */
+    public static void markDirty(@Nonnull Crate crate, int slot) {
+        BValidate.notNull(crate);
+
+        configuration.markDirty(crate.name().get() + ".prizes." + slot);
+    }
+
+    /**
+     * Serializes all crates in the configuration
+     */
+    private static void serialize() {
+        configuration.clear();
+
+        //Serializes all crates
+        crates.values().forEach(CrateManager::serialize);
+    }
+
+    /**
+     * Serializes a crate section (a crate or one of its prizes) in the configuration, if it still exists
+     *
+     * @param section the section path
+     */
+    private static void serialize(@Nonnull String section) {
+        BValidate.notNull(section);
+
+        int prizes = section.indexOf(".prizes.");
+        if (prizes < 0) {
+            get(section).ifPresent(CrateManager::serialize);
+            return;
+        }
+
+        int slot = Integer.parseInt(section.substring(prizes + ".prizes.".length()));
+        get(section.substring(0, prizes)).ifPresent(crate -> PrizeManager.get(crate, slot).ifPresent(prize -> serialize(crate, prize)));
+    }
+
+    /**
+     * Serializes a crate in the configuration
+     *
+     * @param crate the crate
+     */
+    private static void serialize(@Nonnull Crate crate) {
+        BValidate.notNull(crate);
+
+        String name = crate.name().get();
+        configuration.set(name + ".size", crate.size().get().name());
+        configuration.set(name + ".location", BLocation.getAsString(crate.location().get()));
+        configuration.set(name + ".color", crate.color().get().name());
+        configuration.set(name + ".key", crate.key().get().name().get());
+        configuration.set(name + ".skin", crate.skin().get());
+        configuration.set(name + ".direction", crate.direction().get());
+
+        crate.prizes().get().forEach(prize -> serialize(crate, prize));
+    }
+
+    /**
+     * Serializes a prize in the configuration
+     *
+     * @param crate the crate
+     * @param prize the prize
+     */
+    private static void serialize(@Nonnull Crate crate, @Nonnull Prize prize) {
+        BValidate.notNull(crate);
+        BValidate.notNull(prize);
+
+        String path = crate.name().get() + ".prizes." + prize.slot().get();
+        configuration.set(path + ".item", prize.item().get());
+        configuration.set(path + ".skin", prize.skin().get());
+        configuration.set(path + ".chance", prize.chance().get());
+        configuration.set(path + ".rarity", prize.rarity().get());
+        configuration.set(path + ".tags", prize.tags().get().stream().map(tag -> tag.name().get()).collect(Collectors.toList()));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package fr.bobinho.bcrate.util.crate.animation;
+
+import fr.bobinho.bcrate.BCrateCore;
+import fr.bobinho.bcrate.api.entity.BEntity;
+import fr.bobinho.bcrate.api.packet.BPacket;
+import fr.bobinho.bcrate.api.scheduler.BScheduler;
+import fr.bobinho.bcrate.api.setting.BSetting;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.Crate;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Engine animating all crates from a single repeating task (main thread only)
+ * Each crate is animated every divisor ticks, and the crates not animated once the tick budget is spent are postponed to the next tick
+ */
+public final class CrateAnimationEngine {
+
+    /**
+     * Fields
+     */
+    private static final List<Entry> entries = new ArrayList<>();
+    private static BScheduler ticker;
+    private static long tick;
+    private static int cursor;
+    private static long budget = 2_000_000L;
+
+    //Metrics
+    private static long lastTickNanos;
+    private static long maxTickNanos;
+    private static long totalTickNanos;
+    private static long tickCount;
+    private static long postponedSteps;
+    private static long failedSteps;
+
+    /**
+     * Unitilizable constructor (utility class)
+     */
+    private CrateAnimationEngine() {
+    }
+
+    /**
+     * Starts the engine
+     */
+    public static void start() {
+        stop();
+
+        //Gets the tick budget (in microseconds)
+        budget = BCrateCore.getConfigSetting().isInt("animation.budget").orElse(2000) * 1_000L;
+
+        ticker = BScheduler.syncScheduler().every(1);
+        ticker.run(CrateAnimationEngine::tick);
+    }
+
+    /**
+     * Stops the engine
+     */
+    public static void stop() {
+        if (ticker != null) {
+            ticker.stop();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Registers a crate, its divisor is read from the config
+     *
+     * @param crate the crate
+     */
+    public static void register(@Nonnull Crate crate) {
+        BValidate.notNull(crate);
+
+        BSetting configuration = BCrateCore.getConfigSetting();
+        int divisor = configuration.isInt("animation.divisors." + crate.name().get())
+                .orElse(configuration.isInt("animation.divisor").orElse(2));
+
+        unregister(crate);
+
+        //Spreads the crates over the ticks
+        Entry entry = new Entry(crate, Math.max(1, divisor));
+        entry.nextTick = tick + 1 + entries.size() % entry.divisor;
+        entries.add(entry);
+    }
+
+    /**
+     * Unregisters a crate
+     *
+     * @param crate the crate
+     */
+    public static void unregister(@Nonnull Crate crate) {
+        BValidate.notNull(crate);
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).crate == crate) {
+                entries.remove(i);
+
+                //Keeps the cursor on the same next crate
+                if (cursor > i) {
+                    cursor--;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs an engine tick
+     */
+    private static void tick() {
+        long start = System.nanoTime();
+        int size = entries.size();
+        tick++;
+
+        if (cursor >= size) {
+            cursor = 0;
+        }
+
+        //Packets of all crates are sent once per player at the end of the tick
+        BPacket.startBatch();
+        try {
+            animate(start, size);
+
+            //Pose changes of the tick are sent in the same batch
+            BEntity.flushAll();
+        } finally {
+            BPacket.flushBatch();
+        }
+
+        lastTickNanos = System.nanoTime() - start;
+        maxTickNanos = Math.max(maxTickNanos, lastTickNanos);
+        totalTickNanos += lastTickNanos;
+        tickCount++;
+    }
+
+    /**
+     * Animates the due crates from the cursor until the budget is spent
+     *
+     * @param start the tick start (in nanoseconds)
+     * @param size  the number of crates
+     */
+    private static void animate(long start, int size) {
+        for (int visited = 0; visited < size; visited++) {
+            Entry entry = entries.get(cursor);
+            cursor = (cursor + 1) % size;
+
+            if (entry.nextTick > tick) {
+                continue;
+            }
+
+            entry.nextTick = tick + entry.divisor;
+            try {
+                entry.crate.animate();
+            } catch (Exception e) {
+                failedSteps++;
+                BCrateCore.getBLogger().error("Could not animate the " + entry.crate.name().get() + " crate!", e);
+            }
+
+            //The remaining due crates are postponed to the next tick, starting from the cursor
+            if (System.nanoTime() - start > budget) {
+                for (Entry remaining : entries) {
+                    if (remaining.nextTick <= tick) {
+                        postponedSteps++;
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of animated crates
+     *
+     * @return the number of animated crates
+     */
+    public static int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the duration of the last tick
+     *
+     * @return the duration of the last tick (in nanoseconds)
+     */
+    public static long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Gets the longest tick duration
+     *
+     * @return the longest tick duration (in nanoseconds)
+     */
+    public static long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /**
+     * Gets the average tick duration
+     *
+     * @return the average tick duration (in nanoseconds)
+     */
+    public static long getAverageTickNanos() {
+        return tickCount == 0 ? 0 : totalTickNanos / tickCount;
+    }
+
+    /**
+     * Gets the number of animation steps postponed because the budget was spent
+     *
+     * @return the number of postponed animation steps
+     */
+    public static long getPostponedSteps() {
+        return postponedSteps;
+    }
+
+    /**
+     * Gets the number of animation steps which have thrown an exception
+     *
+     * @return the number of failed animation steps
+     */
+    public static long getFailedSteps() {
+        return failedSteps;
+    }
+
+    /**
+     * Registered crate
+     */
+    private static final class Entry {
+
+        /**
+         * Fields
+         */
+        private final Crate crate;
+        private final int divisor;
+        private long nextTick;
+
+        /**
+         * Creates a new entry
+         *
+         * @param crate   the crate
+         * @param divisor the number of ticks between two animation steps
+         */
+        private Entry(@Nonnull Crate crate, int divisor) {
+            BValidate.notNull(crate);
+
+            this.crate = crate;
+            this.divisor = divisor;
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+package fr.bobinho.bcrate.util.crate.animation;
+
+import fr.bobinho.bcrate.api.entity.base.BArmorStandEntity;
+import fr.bobinho.bcrate.api.entity.type.BArmoredEntity;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.Crate;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateKeyframe;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateKeyframes;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateOrientation;
+import fr.bobinho.bcrate.util.player.PlayerManager;
+import fr.bobinho.bcrate.util.prize.Prize;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.World;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Class playing the keyframes of a crate on a structure
+ */
+public final class CrateAnimator {
+
+    /**
+     * Fields
+     */
+    private final Crate crate;
+    private final CrateOrientation orientation;
+    private final CrateKeyframes keyframes;
+    private final List<BArmorStandEntity> structure;
+    private final CrateState state;
+    private final World world;
+    private final Location location;
+    private final Location openingParticles;
+    private final Location[] revealParticles;
+
+    /**
+     * Creates a new animator
+     *
+     * @param crate       the crate
+     * @param orientation the orientation
+     * @param structure   the structure
+     * @param state       the animation state
+     */
+    public CrateAnimator(@Nonnull Crate crate, @Nonnull CrateOrientation orientation, @Nonnull List<BArmorStandEntity> structure, @Nonnull CrateState state) {
+        BValidate.notNull(crate);
+        BValidate.notNull(orientation);
+        BValidate.notNull(structure);
+        BValidate.notNull(state);
+
+        this.crate = crate;
+        this.orientation = orientation;
+        this.keyframes = CrateKeyframes.of(orientation);
+        this.structure = structure;
+        this.state = state;
+        this.location = crate.location().get();
+        this.world = location.getWorld();
+        this.openingParticles = location.clone().add(0.0D, 2.3D, 0.0D);
+        this.revealParticles = new Location[]{offset(keyframes.getBurst(0)), offset(keyframes.getBurst(1))};
+    }
+
+    /**
+     * Gets the location of a keyframe
+     *
+     * @param keyframe the keyframe
+     * @return the location
+     */
+    private @Nonnull Location offset(@Nonnull CrateKeyframe keyframe) {
+        BValidate.notNull(keyframe);
+
+        return location.clone().add(keyframe.getX(), keyframe.getY(), keyframe.getZ());
+    }
+
+    /**
+     * Moves a structure part to a keyframe
+     *
+     * @param part     the part
+     * @param keyframe the keyframe
+     * @return the structure part
+     */
+    private @Nonnull BArmorStandEntity move(int part, @Nonnull CrateKeyframe keyframe) {
+        BValidate.notNull(keyframe);
+
+        BArmorStandEntity entity = structure.get(part);
+        entity.teleport(location.getX() + keyframe.getX(), location.getY() + keyframe.getY(), location.getZ() + keyframe.getZ(), keyframe.getYaw(), 0.0F);
+
+        return entity;
+    }
+
+    /**
+     * Prepares the structure before the first animation step
+     */
+    public void prepare() {
+        structure.get(0).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(0)).render();
+
+        for (int i = 2; i < 4; i++) {
+            structure.get(i)
+                    .setRightArmPose(-90, 0, 0)
+                    .setLeftArmPose(-90, 0, 0);
+            move(i, keyframes.getRest()).render();
+        }
+    }
+
+    /**
+     * Runs one animation step
+     */
+    public void step() {
+        switch (state.getPhase()) {
+            case REVEALING -> reveal();
+            case CLOSING -> close();
+            case OPENING -> open();
+            default -> spin();
+        }
+    }
+
+    /**
+     * Spins the spine, and opens the crate when the spine is in front of the lid
+     */
+    private void spin() {
+        int frame = state.getSpineFrame();
+
+        //Opens the crate
+        if (state.getPhase() == CratePhase.WAITING && frame == 1) {
+            structure.get(0).clearEquipments().render();
+            structure.get(1).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(1)).render();
+
+            state.opening();
+            world.playSound(location, Sound.ENTITY_FIREWORK_ROCKET_SHOOT, 1, 2);
+            return;
+        }
+
+        move(0, keyframes.getSpine(frame)).render();
+        state.setSpineFrame(frame + 1);
+    }
+
+    /**
+     * Opens the lid, then starts the reveal
+     */
+    private void open() {
+        int frame = state.getLidFrame();
+
+        //Starts the reveal
+        if (frame >= CrateKeyframes.LID_FRAMES) {
+            List<Prize> prizes = state.getPrizes();
+            state.revealing();
+
+            for (int i = 2; i < 4; i++) {
+                structure.get(i)
+                        .setRightArmPose(-90, 0, 0)
+                        .setLeftArmPose(-90, 0, 0);
+                move(i, keyframes.getRest())
+                        .setEquipment(BArmoredEntity.Equipment.HELMET, prizes.get(i - 2).skin().get()).render();
+            }
+
+            world.playSound(location, Sound.ENTITY_EVOKER_CAST_SPELL, 1, 2);
+            return;
+        }
+
+        Random random = ThreadLocalRandom.current();
+        for (int j = 0; j < 8; j++) {
+            world.spawnParticle(Particle.REDSTONE, openingParticles, 1, 0.2, 0.2, 0.2, new Particle.DustOptions(orientation.openingColor(random), 2));
+        }
+
+        int[] parts = keyframes.getOpening(frame);
+        structure.get(parts[0]).clearEquipments().render();
+        structure.get(parts[1]).clearEquipments().render();
+        structure.get(parts[2]).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(2)).render();
+        structure.get(parts[3]).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(3)).render();
+
+        state.setLidFrame(frame + 1);
+    }
+
+    /**
+     * Moves the prizes out of the crate, then gives them
+     */
+    private void reveal() {
+        int frame = state.getRevealFrame();
+
+        if (frame < keyframes.getRevealFrames()) {
+            move(2, keyframes.getReveal(0, frame)).render();
+            move(3, keyframes.getReveal(1, frame)).render();
+
+            state.setRevealFrame(frame + 1);
+            return;
+        }
+
+        //Gives prizes
+        crate.reward(state.getSession());
+        state.closing();
+
+        for (int i = 2; i < 4; i++) {
+            move(i, keyframes.getRest()).clearEquipments().render();
+            world.spawnParticle(Particle.REDSTONE, revealParticles[i - 2], 10, 0.2, 0.2, 0.2, new Particle.DustOptions(org.bukkit.Color.WHITE, 2));
+            world.playSound(location, Sound.BLOCK_NOTE_BLOCK_CHIME, 1, 2);
+        }
+    }
+
+    /**
+     * Closes the lid, then goes back to the idle spinning
+     */
+    private void close() {
+        int frame = state.getLidFrame();
+
+        //Back to the spinning
+        if (frame < 0) {
+            PlayerManager.openCrate(state.getPlayer().getUniqueId(), false);
+            state.spinning();
+
+            structure.get(0).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(0)).render();
+            for (int i : new int[]{1, 4, 18}) {
+                structure.get(i).clearEquipments().render();
+            }
+            return;
+        }
+
+        int[] parts = keyframes.getClosing(frame);
+        structure.get(parts[0]).clearEquipments().render();
+        structure.get(parts[1]).clearEquipments().render();
+        structure.get(parts[2]).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(2)).render();
+        structure.get(parts[3]).setEquipment(BArmoredEntity.Equipment.HELMET, crate.skin().get(3)).render();
+
+        state.setLidFrame(frame - 1);
+    }
+
+}
@@ -0,0 +1,98 @@
+package fr.bobinho.bcrate.util.crate.animation;
+
+import fr.bobinho.bcrate.api.entity.BEntity;
+import fr.bobinho.bcrate.api.entity.base.BArmorStandEntity;
+import fr.bobinho.bcrate.api.renderer.BRendererGroup;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.Crate;
+import fr.bobinho.bcrate.util.crate.CrateManager;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Class representing an instanced opening of a crate
+ * The opening plays on its own packet only structure, shown to the opener only
+ */
+public final class CrateOpening {
+
+    /**
+     * Fields
+     */
+    private final Player player;
+    private final List<BArmorStandEntity> structure;
+    private final BRendererGroup renderer;
+    private final CrateState state = new CrateState();
+    private final CrateAnimator animator;
+
+    /**
+     * Creates a new opening
+     *
+     * @param crate  the crate
+     * @param player the opener
+     */
+    public CrateOpening(@Nonnull Crate crate, @Nonnull Player player) {
+        BValidate.notNull(crate);
+        BValidate.notNull(player);
+
+        this.player = player;
+        this.structure = CrateManager.createStructure(crate.location().get(), crate.orientation());
+        this.renderer = new BRendererGroup(crate.location().get());
+        this.renderer.getRenderer().setViewers(List.of(player.getUniqueId()));
+        this.structure.forEach(part -> renderer.add(part.getRenderer()));
+        this.animator = new CrateAnimator(crate, crate.orientation(), structure, state);
+
+        //Starts where the shared spine is, so the opener does not see it jump
+        this.state.setSpineFrame(crate.state().getSpineFrame());
+        this.animator.prepare();
+    }
+
+    /**
+     * Gets the opener
+     *
+     * @return the opener
+     */
+    public @Nonnull Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the animation state
+     *
+     * @return the animation state
+     */
+    public @Nonnull CrateState state() {
+        return state;
+    }
+
+    /**
+     * Starts the opening, its state belongs to the opener so the claim always succeeds
+     *
+     * @param session the session
+     */
+    public void start(@Nonnull CrateSession session) {
+        BValidate.notNull(session);
+
+        state.claim(session);
+    }
+
+    /**
+     * Runs one animation step
+     *
+     * @return true if the opening is still running, false once finished
+     */
+    public boolean step() {
+        animator.step();
+
+        return !state.isIdle();
+    }
+
+    /**
+     * Removes the structure
+     */
+    public void remove() {
+        structure.forEach(BEntity::remove);
+    }
+
+}
@@ -0,0 +1,33 @@
+package fr.bobinho.bcrate.util.crate.animation;
+
+/**
+ * Class representing the phase of the crate animation
+ */
+public enum CratePhase {
+
+    /**
+     * The crate is idle and its spine is spinning
+     */
+    SPINNING,
+
+    /**
+     * A player is playing, the spine is spinning until it is in front of the lid
+     */
+    WAITING,
+
+    /**
+     * The lid is opening
+     */
+    OPENING,
+
+    /**
+     * The prizes are coming out of the crate
+     */
+    REVEALING,
+
+    /**
+     * The prizes are given and the lid is closing
+     */
+    CLOSING
+
+}
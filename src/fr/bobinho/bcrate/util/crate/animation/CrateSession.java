@@ -0,0 +1,81 @@
+package fr.bobinho.bcrate.util.crate.animation;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.prize.Prize;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Class representing a crate opening, owned by the player who claimed the crate
+ */
+public final class CrateSession {
+
+    /**
+     * Fields
+     */
+    private final Player player;
+    private final List<Prize> prizes;
+    private final long startedAt;
+    private volatile boolean rewarded;
+
+    /**
+     * Creates a new session
+     *
+     * @param player the player
+     * @param prizes the prizes
+     */
+    public CrateSession(@Nonnull Player player, @Nonnull List<Prize> prizes) {
+        BValidate.notNull(player);
+        BValidate.notNull(prizes);
+
+        this.player = player;
+        this.prizes = List.copyOf(prizes);
+        this.startedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the player
+     *
+     * @return the player
+     */
+    public @Nonnull Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the prizes
+     *
+     * @return the prizes
+     */
+    public @Nonnull List<Prize> getPrizes() {
+        return prizes;
+    }
+
+    /**
+     * Gets the session start
+     *
+     * @return the session start (in milliseconds)
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Checks if the prizes have been given
+     *
+     * @return true if the prizes have been given, false otherwise
+     */
+    public boolean isRewarded() {
+        return rewarded;
+    }
+
+    /**
+     * Marks the prizes as given
+     */
+    public void rewarded() {
+        this.rewarded = true;
+    }
+
+}
@@ -0,0 +1,180 @@
+package fr.bobinho.bcrate.util.crate.animation;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.animation.keyframe.CrateKeyframes;
+import fr.bobinho.bcrate.util.prize.Prize;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class representing the animation state of a crate
+ * The phase and the session can be read from any thread, the frames are only used on the main thread
+ */
+public final class CrateState {
+
+    /**
+     * Fields
+     */
+    private volatile CratePhase phase = CratePhase.SPINNING;
+    private final AtomicReference<CrateSession> session = new AtomicReference<>();
+    private int spineFrame;
+    private int lidFrame;
+    private int revealFrame;
+
+    /**
+     * Gets the phase
+     *
+     * @return the phase
+     */
+    public @Nonnull CratePhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Checks if the crate is idle (nobody is playing)
+     *
+     * @return true if the crate is idle, false otherwise
+     */
+    public boolean isIdle() {
+        return session.get() == null;
+    }
+
+    /**
+     * Gets the session
+     *
+     * @return the session, null if the crate is idle
+     */
+    public CrateSession getSession() {
+        return session.get();
+    }
+
+    /**
+     * Gets the player
+     *
+     * @return the player, null if the crate is idle
+     */
+    public Player getPlayer() {
+        CrateSession current = session.get();
+        return current == null ? null : current.getPlayer();
+    }
+
+    /**
+     * Gets the prizes
+     *
+     * @return the prizes, null if the crate is idle
+     */
+    public List<Prize> getPrizes() {
+        CrateSession current = session.get();
+        return current == null ? null : current.getPrizes();
+    }
+
+    /**
+     * Gets the spine frame
+     *
+     * @return the spine frame
+     */
+    public int getSpineFrame() {
+        return spineFrame;
+    }
+
+    /**
+     * Sets the spine frame
+     *
+     * @param spineFrame the spine frame
+     */
+    public void setSpineFrame(int spineFrame) {
+        this.spineFrame = spineFrame % CrateKeyframes.SPINE_FRAMES;
+    }
+
+    /**
+     * Gets the lid frame
+     *
+     * @return the lid frame
+     */
+    public int getLidFrame() {
+        return lidFrame;
+    }
+
+    /**
+     * Sets the lid frame
+     *
+     * @param lidFrame the lid frame
+     */
+    public void setLidFrame(int lidFrame) {
+        this.lidFrame = lidFrame;
+    }
+
+    /**
+     * Gets the reveal frame
+     *
+     * @return the reveal frame
+     */
+    public int getRevealFrame() {
+        return revealFrame;
+    }
+
+    /**
+     * Sets the reveal frame
+     *
+     * @param revealFrame the reveal frame
+     */
+    public void setRevealFrame(int revealFrame) {
+        this.revealFrame = revealFrame;
+    }
+
+    /**
+     * Claims the crate, then waits for the spine to open it
+     * Exactly one of the concurrent claims wins, without lock
+     *
+     * @param session the session
+     * @return true if the session owns the crate, false if the crate was already claimed
+     */
+    public boolean claim(@Nonnull CrateSession session) {
+        BValidate.notNull(session);
+
+        if (!this.session.compareAndSet(null, session)) {
+            return false;
+        }
+
+        this.phase = CratePhase.WAITING;
+        return true;
+    }
+
+    /**
+     * Starts opening the lid
+     */
+    public void opening() {
+        this.lidFrame = 0;
+        this.phase = CratePhase.OPENING;
+    }
+
+    /**
+     * Starts revealing the prizes
+     */
+    public void revealing() {
+        this.revealFrame = 0;
+        this.phase = CratePhase.REVEALING;
+    }
+
+    /**
+     * Starts closing the lid
+     */
+    public void closing() {
+        this.lidFrame = CrateKeyframes.LID_FRAMES - 1;
+        this.phase = CratePhase.CLOSING;
+    }
+
+    /**
+     * Goes back to the idle spinning
+     */
+    public void spinning() {
+        this.phase = CratePhase.SPINNING;
+
+        //Released last, so a new claim always starts from the spinning phase
+        this.session.set(null);
+    }
+
+}
@@ -0,0 +1,67 @@
+package fr.bobinho.bcrate.util.crate.animation.keyframe;
+
+/**
+ * Class representing a keyframe: an offset from the crate location and a yaw
+ */
+public final class CrateKeyframe {
+
+    /**
+     * Fields
+     */
+    private final double x;
+    private final double y;
+    private final double z;
+    private final float yaw;
+
+    /**
+     * Creates a new keyframe
+     *
+     * @param x   the x offset
+     * @param y   the y offset
+     * @param z   the z offset
+     * @param yaw the yaw
+     */
+    public CrateKeyframe(double x, double y, double z, float yaw) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+    }
+
+    /**
+     * Gets the x offset
+     *
+     * @return the x offset
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Gets the y offset
+     *
+     * @return the y offset
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Gets the z offset
+     *
+     * @return the z offset
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Gets the yaw
+     *
+     * @return the yaw
+     */
+    public float getYaw() {
+        return yaw;
+    }
+
+}
@@ -0,0 +1,229 @@
+package fr.bobinho.bcrate.util.crate.animation.keyframe;
+
+import fr.bobinho.bcrate.api.location.BLocation;
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing the keyframe tables of a crate orientation, computed once at startup
+ * The structure is made of 32 parts: the spine (0), the open spine (1), the two prizes (2, 3) and the two lid halves (4 to 17 and 18 to 31)
+ */
+public final class CrateKeyframes {
+
+    /**
+     * Constants
+     */
+    public static final int PARTS = 32;
+    public static final int SPINE_FRAMES = 36;
+    public static final int LID_FRAMES = 14;
+
+    //Lid curve (up, side) of each part of a lid half
+    private static final double[][] LID_CURVE = {
+            {0.0D, 0.0D},
+            {0.06D, 0.081D},
+            {0.13D, 0.15D},
+            {0.22D, 0.21D},
+            {0.31D, 0.26D},
+            {0.41D, 0.282D},
+            {0.512D, 0.288D},
+            {0.615D, 0.278D},
+            {0.715D, 0.249D},
+            {0.805D, 0.201D},
+            {0.89D, 0.14D},
+            {0.96D, 0.064D},
+            {1.015D, -0.02D},
+            {1.06D, -0.12D}
+    };
+
+    //Lid parts to clear and to equip (left clear, right clear, left equip, right equip) for each frame
+    private static final int[][] OPENING = new int[LID_FRAMES][];
+    private static final int[][] CLOSING = new int[LID_FRAMES][];
+
+    static {
+        for (int frame = 0; frame < LID_FRAMES; frame++) {
+            OPENING[frame] = new int[]{Math.max(4, 3 + frame), Math.max(18, 17 + frame), 4 + frame, 18 + frame};
+            CLOSING[frame] = new int[]{Math.min(17, 5 + frame), Math.min(31, 19 + frame), 4 + frame, 18 + frame};
+        }
+    }
+
+    private static final CrateKeyframes NS = new CrateKeyframes(CrateOrientation.NS);
+    private static final CrateKeyframes EW = new CrateKeyframes(CrateOrientation.EW);
+
+    /**
+     * Fields
+     */
+    private final CrateKeyframe[] structure = new CrateKeyframe[PARTS];
+    private final float[][] poses = new float[PARTS][];
+    private final CrateKeyframe[] spine = new CrateKeyframe[SPINE_FRAMES];
+    private final CrateKeyframe[][] reveal;
+    private final CrateKeyframe rest;
+    private final CrateKeyframe[] burst;
+
+    /**
+     * Creates the keyframe tables of an orientation
+     *
+     * @param orientation the orientation
+     */
+    private CrateKeyframes(@Nonnull CrateOrientation orientation) {
+        BValidate.notNull(orientation);
+
+        boolean isNS = orientation == CrateOrientation.NS;
+        float yaw = BLocation.degreeToYaw(orientation.getDegree());
+
+        //Structure parts, the lid halves follow the lid curve
+        for (int i = 0; i < PARTS; i++) {
+            float angle = (float) ((i - 4) * 10 % 140);
+            double up = i < 4 ? 0 : LID_CURVE[Math.max(0, i - 4) % 14][0];
+            double side = i < 4 ? 0 : LID_CURVE[Math.max(0, i - 4) % 14][1];
+
+            structure[i] = isNS ?
+                    new CrateKeyframe(i < 18 ? -side : side, up, 0, 0.0F)
+                    :
+                    new CrateKeyframe(0, up, i < 18 ? side : -side, 0.0F);
+
+            if (i != 2 && i != 3) {
+                poses[i] = isNS ?
+                        new float[]{0, 90, i < 4 ? 0 : (i < 18 ? angle : -angle)}
+                        :
+                        new float[]{i < 4 ? 0 : (i < 18 ? -angle : angle), 0, 0};
+            }
+        }
+
+        //Spine rotation, 10 degrees per frame
+        for (int frame = 0; frame < SPINE_FRAMES; frame++) {
+            float degree = frame * 10.0F;
+
+            spine[frame] = new CrateKeyframe(0, -Math.abs((degree - 180) / 360) + 0.5, 0, BLocation.degreeToYaw(degree));
+        }
+
+        //Prizes reveal: the prizes jump out of the crate, then float until the end
+        List<CrateKeyframe> left = new ArrayList<>();
+        List<CrateKeyframe> right = new ArrayList<>();
+        double degree = 0.0D;
+        while (degree <= 401) {
+            if (degree <= 1.5) {
+                double up = 0.5 - Math.pow((degree - 0.6329113) * 1.58, 2) + 1;
+
+                left.add(orientation.keyframe(-degree, up, yaw));
+                right.add(orientation.keyframe(degree, up, yaw));
+                degree += 0.05D;
+            } else {
+                double up = 0.37690040004 - Math.abs(((degree % 360) - 180) / 600) + 0.3;
+
+                left.add(orientation.keyframe(-1.5, up, yaw));
+                right.add(orientation.keyframe(1.5, up, yaw));
+                degree += 10.0D;
+            }
+        }
+        this.reveal = new CrateKeyframe[][]{left.toArray(CrateKeyframe[]::new), right.toArray(CrateKeyframe[]::new)};
+
+        //Prizes rest position and end of reveal particles
+        this.rest = orientation.keyframe(0, 0.5, yaw);
+        this.burst = new CrateKeyframe[]{orientation.keyframe(-1.5, 2.5, yaw), orientation.keyframe(1.5, 2.5, yaw)};
+    }
+
+    /**
+     * Gets the keyframe tables of an orientation
+     *
+     * @param orientation the orientation
+     * @return the keyframe tables
+     */
+    public static @Nonnull CrateKeyframes of(@Nonnull CrateOrientation orientation) {
+        BValidate.notNull(orientation);
+
+        return orientation == CrateOrientation.NS ? NS : EW;
+    }
+
+    /**
+     * Gets the offset of a structure part (the yaw is not used)
+     *
+     * @param part the part
+     * @return the offset
+     */
+    public @Nonnull CrateKeyframe getStructure(int part) {
+        return structure[part];
+    }
+
+    /**
+     * Gets the head pose of a structure part
+     *
+     * @param part the part
+     * @return the head pose (x, y, z), null for the prize parts
+     */
+    public float[] getPose(int part) {
+        return poses[part];
+    }
+
+    /**
+     * Gets a spine keyframe
+     *
+     * @param frame the frame
+     * @return the spine keyframe
+     */
+    public @Nonnull CrateKeyframe getSpine(int frame) {
+        return spine[frame];
+    }
+
+    /**
+     * Gets the number of reveal frames
+     *
+     * @return the number of reveal frames
+     */
+    public int getRevealFrames() {
+        return reveal[0].length;
+    }
+
+    /**
+     * Gets a reveal keyframe
+     *
+     * @param prize the prize (0 or 1)
+     * @param frame the frame
+     * @return the reveal keyframe
+     */
+    public @Nonnull CrateKeyframe getReveal(int prize, int frame) {
+        return reveal[prize][frame];
+    }
+
+    /**
+     * Gets the rest keyframe of the prizes
+     *
+     * @return the rest keyframe
+     */
+    public @Nonnull CrateKeyframe getRest() {
+        return rest;
+    }
+
+    /**
+     * Gets the end of reveal particles offset
+     *
+     * @param prize the prize (0 or 1)
+     * @return the particles offset
+     */
+    public @Nonnull CrateKeyframe getBurst(int prize) {
+        return burst[prize];
+    }
+
+    /**
+     * Gets the lid parts of an opening frame
+     *
+     * @param frame the frame
+     * @return the lid parts (left clear, right clear, left equip, right equip)
+     */
+    public @Nonnull int[] getOpening(int frame) {
+        return OPENING[frame];
+    }
+
+    /**
+     * Gets the lid parts of a closing frame
+     *
+     * @param frame the frame
+     * @return the lid parts (left clear, right clear, left equip, right equip)
+     */
+    public @Nonnull int[] getClosing(int frame) {
+        return CLOSING[frame];
+    }
+
+}
@@ -0,0 +1,120 @@
+package fr.bobinho.bcrate.util.crate.animation.keyframe;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+import org.bukkit.Color;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class representing the orientation of a crate
+ */
+public enum CrateOrientation {
+    NS("NS", 0.0F) {
+        @Override
+        public @Nonnull CrateKeyframe keyframe(double side, double up, float yaw) {
+            return new CrateKeyframe(side, up, 0.0D, yaw);
+        }
+
+        @Override
+        public @Nonnull Color openingColor(@Nonnull Random random) {
+            BValidate.notNull(random);
+
+            //Shuffles 255, 0 and a random value
+            int value = random.nextInt(256);
+            return switch (random.nextInt(6)) {
+                case 0 -> Color.fromBGR(255, 0, value);
+                case 1 -> Color.fromBGR(255, value, 0);
+                case 2 -> Color.fromBGR(0, 255, value);
+                case 3 -> Color.fromBGR(0, value, 255);
+                case 4 -> Color.fromBGR(value, 255, 0);
+                default -> Color.fromBGR(value, 0, 255);
+            };
+        }
+    },
+    EW("EW", 270.0F) {
+        @Override
+        public @Nonnull CrateKeyframe keyframe(double side, double up, float yaw) {
+            return new CrateKeyframe(0.0D, up, side, yaw);
+        }
+
+        @Override
+        public @Nonnull Color openingColor(@Nonnull Random random) {
+            BValidate.notNull(random);
+
+            return Color.fromBGR(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+        }
+    };
+
+    /**
+     * Fields
+     */
+    private final String direction;
+    private final float degree;
+
+    /**
+     * Creates a new orientation
+     *
+     * @param direction the direction
+     * @param degree    the degree the prizes are facing
+     */
+    CrateOrientation(@Nonnull String direction, float degree) {
+        BValidate.notNull(direction);
+
+        this.direction = direction;
+        this.degree = degree;
+    }
+
+    /**
+     * Gets the direction
+     *
+     * @return the direction
+     */
+    public @Nonnull String getDirection() {
+        return direction;
+    }
+
+    /**
+     * Gets the degree the prizes are facing
+     *
+     * @return the degree
+     */
+    public float getDegree() {
+        return degree;
+    }
+
+    /**
+     * Creates a keyframe from an offset along the crate axis
+     *
+     * @param side the offset along the crate axis
+     * @param up   the vertical offset
+     * @param yaw  the yaw
+     * @return the keyframe
+     */
+    public abstract @Nonnull CrateKeyframe keyframe(double side, double up, float yaw);
+
+    /**
+     * Gets a random color of the opening particles
+     *
+     * @param random the random generator
+     * @return the color
+     */
+    public abstract @Nonnull Color openingColor(@Nonnull Random random);
+
+    /**
+     * Gets the orientation of a direction
+     *
+     * @param direction the direction
+     * @return the orientation
+     */
+    public static @Nonnull CrateOrientation fromDirection(@Nonnull String direction) {
+        BValidate.notNull(direction);
+
+        return Arrays.stream(values())
+                .filter(orientation -> orientation.getDirection().equals(direction))
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new);
+    }
+
+}
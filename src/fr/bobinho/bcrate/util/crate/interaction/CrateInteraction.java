@@ -0,0 +1,81 @@
+package fr.bobinho.bcrate.util.crate.interaction;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.Crate;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+/**
+ * Class representing a player interaction with a crate, decoded from the packet thread
+ */
+public final class CrateInteraction {
+
+    /**
+     * Interaction types
+     */
+    public enum Type {
+
+        /**
+         * Left-click, opens the crate
+         */
+        OPEN,
+
+        /**
+         * Right-click, shows the crate prizes
+         */
+        SHOW
+    }
+
+    /**
+     * Fields
+     */
+    private final UUID player;
+    private final Crate crate;
+    private final Type type;
+
+    /**
+     * Creates a new interaction
+     *
+     * @param player the player uuid
+     * @param crate  the crate
+     * @param type   the type
+     */
+    public CrateInteraction(@Nonnull UUID player, @Nonnull Crate crate, @Nonnull Type type) {
+        BValidate.notNull(player);
+        BValidate.notNull(crate);
+        BValidate.notNull(type);
+
+        this.player = player;
+        this.crate = crate;
+        this.type = type;
+    }
+
+    /**
+     * Gets the player uuid
+     *
+     * @return the player uuid
+     */
+    public @Nonnull UUID getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the crate
+     *
+     * @return the crate
+     */
+    public @Nonnull Crate getCrate() {
+        return crate;
+    }
+
+    /**
+     * Gets the type
+     *
+     * @return the type
+     */
+    public @Nonnull Type getType() {
+        return type;
+    }
+
+}
@@ -0,0 +1,324 @@
+package fr.bobinho.bcrate.util.crate.interaction;
+
+import fr.bobinho.bcrate.BCrateCore;
+import fr.bobinho.bcrate.api.notification.BPlaceHolder;
+import fr.bobinho.bcrate.api.scheduler.BScheduler;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.Crate;
+import fr.bobinho.bcrate.util.crate.CrateManager;
+import fr.bobinho.bcrate.util.crate.notification.CrateNotification;
+import fr.bobinho.bcrate.util.key.Key;
+import fr.bobinho.bcrate.util.player.PlayerManager;
+import fr.bobinho.bcrate.util.player.notification.PlayerNotification;
+import fr.bobinho.bcrate.util.prize.Prize;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queue handing the crate interactions from the packet thread over to the main thread
+ * Any thread can offer an interaction without lock, the main thread drains them once per tick
+ */
+public final class CrateInteractionQueue {
+
+    /**
+     * Constants
+     */
+    private static final int MAX_PER_TICK = 1000;
+
+    /**
+     * Fields
+     */
+    private static final Queue<CrateInteraction> interactions = new ConcurrentLinkedQueue<>();
+    private static BScheduler drainer;
+
+    /**
+     * Unitilizable constructor (utility class)
+     */
+    private CrateInteractionQueue() {
+    }
+
+    /**
+     * Starts draining the queue
+     */
+    public static void start() {
+        stop();
+
+        drainer = BScheduler.syncScheduler().every(1);
+        drainer.run(CrateInteractionQueue::drain);
+    }
+
+    /**
+     * Stops draining the queue, the pending interactions are dropped
+     */
+    public static void stop() {
+        if (drainer != null) {
+            drainer.stop();
+            drainer = null;
+        }
+
+        interactions.clear();
+    }
+
+    /**
+     * Offers an interaction (thread safe)
+     *
+     * @param interaction the interaction
+     */
+    public static void offer(@Nonnull CrateInteraction interaction) {
+        BValidate.notNull(interaction);
+
+        interactions.offer(interaction);
+    }
+
+    /**
+     * Handles the pending interactions, the remaining ones are kept for the next tick
+     */
+    private static void drain() {
+        CrateInteraction interaction;
+        for (int i = 0; i < MAX_PER_TICK && (interaction = interactions.poll()) != null; i++) {
+            try {
+                handle(interaction);
+            } catch (Exception e) {
+                BCrateCore.getBLogger().error("Could not handle the interaction with the " + interaction.getCrate().name().get() + " crate!", e);
+            }
+        }
+    }
+
+    /**
+     * Handles an interaction
+     *
+     * @param interaction the interaction
+     */
+    private static void handle(@Nonnull CrateInteraction interaction) {
+        BValidate.notNull(interaction);
+
+        Player player = Bukkit.getPlayer(interaction.getPlayer());
+        Crate crate = interaction.getCrate();
+
+        //If the player left or the crate was deleted meanwhile, no need to continue
+        if (player == null || CrateManager.get(crate.name().get()).orElse(null) != crate) {
+            return;
+        }
+
+        //Interacts with the crate (right-click)
+        if (interaction.getType() == CrateInteraction.Type.SHOW) {
+            CrateManager.openShowMenu(player, crate.name().get());
+            return;
+        }
+
+        //Sneak left-click opens with all the keys at once
+        if (player.isSneaking() && isBulkOnSneak()) {
+            bulkOpen(player, crate, Integer.MAX_VALUE);
+            return;
+        }
+
+        //Checks if the player already have open a crate, or waits for one
+        if (PlayerManager.isOpeningCrate(player.getUniqueId())) {
+            player.sendMessage(PlayerNotification.PLAYER_ALREADY_USED_CRATE.getNotification());
+            return;
+        }
+
+        //Checks if the player has the key
+        if (!PlayerManager.hasKey(player.getUniqueId(), crate)) {
+            player.sendMessage(PlayerNotification.PLAYER_HAVENT_KEY.getNotification(new BPlaceHolder("%name%", crate.key().get().name().get())));
+            return;
+        }
+
+        //Checks if the crate is empty
+        if (CrateManager.isEmpty(crate.name().get())) {
+            player.sendMessage(CrateNotification.CRATE_IS_EMPTY.getNotification());
+            return;
+        }
+
+        //Checks if the crate is already used
+        if (!CrateManager.canPlay(crate.name().get())) {
+            enqueue(player, crate);
+            return;
+        }
+
+        launch(player, crate);
+    }
+
+    /**
+     * Queues the player on a busy crate, or rejects the player if the crate has no queue
+     * The player is marked as opening a crate, so the key is kept for this crate
+     *
+     * @param player the player
+     * @param crate  the crate
+     */
+    private static void enqueue(@Nonnull Player player, @Nonnull Crate crate) {
+        BValidate.notNull(player);
+        BValidate.notNull(crate);
+
+        if (!crate.isQueued()) {
+            player.sendMessage(CrateNotification.CRATE_ALREADY_USED.getNotification());
+            return;
+        }
+
+        int position = crate.queue().offer(player.getUniqueId());
+        PlayerManager.openCrate(player.getUniqueId(), true);
+        player.sendMessage(CrateNotification.CRATE_QUEUED.getNotification(new BPlaceHolder("%position%", String.valueOf(position))));
+    }
+
+    /**
+     * Starts the opening of the next queued player able to play, right after the previous opening
+     *
+     * @param crate the crate
+     */
+    public static void startNext(@Nonnull Crate crate) {
+        BValidate.notNull(crate);
+
+        Optional<UUID> next;
+        boolean advanced = false;
+        while (crate.state().isIdle() && (next = crate.queue().poll()).isPresent()) {
+            UUID uuid = next.get();
+            advanced = true;
+
+            //Releases the reservation, the launch takes it again
+            PlayerManager.openCrate(uuid, false);
+
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null) {
+                continue;
+            }
+
+            //The key may have been used meanwhile
+            if (!PlayerManager.hasKey(uuid, crate)) {
+                player.sendMessage(PlayerNotification.PLAYER_HAVENT_KEY.getNotification(new BPlaceHolder("%name%", crate.key().get().name().get())));
+                continue;
+            }
+
+            if (CrateManager.isEmpty(crate.name().get())) {
+                player.sendMessage(CrateNotification.CRATE_IS_EMPTY.getNotification());
+                continue;
+            }
+
+            launch(player, crate);
+        }
+
+        //The remaining players moved up in the queue
+        if (advanced) {
+            notifyPositions(crate);
+        }
+    }
+
+    /**
+     * Sends their new position to the players waiting for a crate
+     *
+     * @param crate the crate
+     */
+    private static void notifyPositions(@Nonnull Crate crate) {
+        BValidate.notNull(crate);
+
+        List<UUID> queued = crate.queue().getPlayers();
+        for (int i = 0; i < queued.size(); i++) {
+            String position = String.valueOf(i + 1);
+
+            Optional.ofNullable(Bukkit.getPlayer(queued.get(i))).ifPresent(player -> player.sendMessage(CrateNotification.CRATE_QUEUE_MOVED.getNotification(
+                    new BPlaceHolder("%position%", position),
+                    new BPlaceHolder("%name%", crate.name().get()))));
+        }
+    }
+
+    /**
+     * Launches the crate for the player
+     *
+     * @param player the player
+     * @param crate  the crate
+     */
+    private static void launch(@Nonnull Player player, @Nonnull Crate crate) {
+        BValidate.notNull(player);
+        BValidate.notNull(crate);
+
+        //Checks if the player inventory is full
+        if (!PlayerManager.canPlay(player.getUniqueId(), crate)) {
+            player.sendMessage(PlayerNotification.PLAYER_INVENTORY_FULL.getNotification(new BPlaceHolder("%player%", player.getDisplayName())));
+            return;
+        }
+
+        List<Prize> items = CrateManager.play(crate.name().get());
+
+        //Launchs the crate, the claim rejects the slower players
+        if (!crate.wait(player, items)) {
+            enqueue(player, crate);
+            return;
+        }
+
+        //Messages
+        player.sendMessage(CrateNotification.CRATE_LAUNCH.getNotification(new BPlaceHolder("%name%", crate.name().get())));
+    }
+
+
+    /**
+     * Opens the crate several times at once without animation, up to the keys of the player and the configured maximum
+     * The prizes are drawn in one batch, the keys are used in one update and the prizes are given with a single summary
+     *
+     * @param player the player
+     * @param crate  the crate
+     * @param amount the requested number of openings
+     */
+    public static void bulkOpen(@Nonnull Player player, @Nonnull Crate crate, int amount) {
+        BValidate.notNull(player);
+        BValidate.notNull(crate);
+
+        UUID uuid = player.getUniqueId();
+        Key key = crate.key().get();
+
+        //Checks if the player already have open a crate, or waits for one
+        if (PlayerManager.isOpeningCrate(uuid)) {
+            player.sendMessage(PlayerNotification.PLAYER_ALREADY_USED_CRATE.getNotification());
+            return;
+        }
+
+        //Checks if the crate is empty
+        if (CrateManager.isEmpty(crate.name().get())) {
+            player.sendMessage(CrateNotification.CRATE_IS_EMPTY.getNotification());
+            return;
+        }
+
+        //Checks if the player has the keys
+        int plays = Math.min(Math.min(amount, getBulkMax()),
+                PlayerManager.getKeyNumberWithdrawable(uuid, key) + PlayerManager.getKeyNumberDepositable(uuid, key));
+        if (plays <= 0) {
+            player.sendMessage(PlayerNotification.PLAYER_HAVENT_KEY.getNotification(new BPlaceHolder("%name%", key.name().get())));
+            return;
+        }
+
+        List<Prize> prizes = CrateManager.play(crate.name().get(), plays);
+
+        //Checks if the player inventory can receive all prizes
+        if (!PlayerManager.canReceive(uuid, prizes)) {
+            player.sendMessage(PlayerNotification.PLAYER_INVENTORY_FULL.getNotification(new BPlaceHolder("%player%", player.getDisplayName())));
+            return;
+        }
+
+        PlayerManager.useKeys(uuid, key, plays);
+        crate.reward(player, plays, prizes);
+    }
+
+    /**
+     * Gets the maximum number of keys used by a bulk opening, read from the config
+     *
+     * @return the maximum number of keys
+     */
+    private static int getBulkMax() {
+        return Math.max(1, BCrateCore.getConfigSetting().isInt("bulk-open.max").orElse(256));
+    }
+
+    /**
+     * Checks if the sneak left-click opens the crate in bulk, read from the config
+     *
+     * @return true if the sneak left-click opens the crate in bulk, false otherwise
+     */
+    private static boolean isBulkOnSneak() {
+        return BCrateCore.getConfigSetting().isBoolean("bulk-open.sneak").orElse(true);
+    }
+
+}
@@ -0,0 +1,200 @@
+package fr.bobinho.bcrate.util.crate.interaction;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Class representing the first in first out queue of the players waiting for a crate (main thread only)
+ */
+public final class CrateQueue {
+
+    /**
+     * Fields
+     */
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    //Metrics
+    private int maxDepth;
+    private long served;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+
+    /**
+     * Queues a player
+     *
+     * @param uuid the player uuid
+     * @return the position of the player in the queue (starting at 1)
+     */
+    public int offer(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        //Already queued players keep their position
+        int position = getPosition(uuid);
+        if (position > 0) {
+            return position;
+        }
+
+        entries.addLast(new Entry(uuid, System.currentTimeMillis()));
+        maxDepth = Math.max(maxDepth, entries.size());
+
+        return entries.size();
+    }
+
+    /**
+     * Removes the next player of the queue
+     *
+     * @return the optional next player uuid
+     */
+    public @Nonnull Optional<UUID> poll() {
+        Entry entry = entries.pollFirst();
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        long wait = System.currentTimeMillis() - entry.enqueuedAt;
+        served++;
+        totalWaitMillis += wait;
+        maxWaitMillis = Math.max(maxWaitMillis, wait);
+
+        return Optional.of(entry.uuid);
+    }
+
+    /**
+     * Removes a player from the queue
+     *
+     * @param uuid the player uuid
+     * @return true if the player was queued, false otherwise
+     */
+    public boolean remove(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        return entries.removeIf(entry -> entry.uuid.equals(uuid));
+    }
+
+    /**
+     * Gets the position of a player
+     *
+     * @param uuid the player uuid
+     * @return the position of the player (starting at 1), 0 if the player is not queued
+     */
+    public int getPosition(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        int position = 1;
+        for (Iterator<Entry> iterator = entries.iterator(); iterator.hasNext(); position++) {
+            if (iterator.next().uuid.equals(uuid)) {
+                return position;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Gets the waiting players
+     *
+     * @return the waiting player uuids, in queue order
+     */
+    public @Nonnull List<UUID> getPlayers() {
+        return entries.stream().map(entry -> entry.uuid).toList();
+    }
+
+    /**
+     * Checks if the queue is empty
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Gets the queue depth
+     *
+     * @return the number of waiting players
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the deepest the queue has been
+     *
+     * @return the maximum number of waiting players
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets the number of players who left the queue for their opening
+     *
+     * @return the number of served players
+     */
+    public long getServed() {
+        return served;
+    }
+
+    /**
+     * Gets the average wait of the served players
+     *
+     * @return the average wait (in milliseconds)
+     */
+    public long getAverageWaitMillis() {
+        return served == 0 ? 0 : totalWaitMillis / served;
+    }
+
+    /**
+     * Gets the longest wait of the served players
+     *
+     * @return the longest wait (in milliseconds)
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * Gets the current wait of the first player
+     *
+     * @return the current wait of the first player (in milliseconds), 0 if the queue is empty
+     */
+    public long getHeadWaitMillis() {
+        Entry entry = entries.peekFirst();
+
+        return entry == null ? 0 : System.currentTimeMillis() - entry.enqueuedAt;
+    }
+
+    /**
+     * Queued player
+     */
+    private static final class Entry {
+
+        /**
+         * Fields
+         */
+        private final UUID uuid;
+        private final long enqueuedAt;
+
+        /**
+         * Creates a new entry
+         *
+         * @param uuid       the player uuid
+         * @param enqueuedAt the time the player was queued (in milliseconds)
+         */
+        private Entry(@Nonnull UUID uuid, long enqueuedAt) {
+            BValidate.notNull(uuid);
+
+            this.uuid = uuid;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+    }
+
+}
@@ -7,21 +7,18 @@ import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import fr.bobinho.bcrate.BCrateCore;
 import fr.bobinho.bcrate.api.event.BEvent;
-import fr.bobinho.bcrate.api.notification.BPlaceHolder;
 import fr.bobinho.bcrate.util.crate.Crate;
 import fr.bobinho.bcrate.util.crate.CrateManager;
 import fr.bobinho.bcrate.util.crate.edit.color.Color;
 import fr.bobinho.bcrate.util.crate.edit.size.Size;
-import fr.bobinho.bcrate.util.crate.notification.CrateNotification;
+import fr.bobinho.bcrate.util.crate.interaction.CrateInteraction;
+import fr.bobinho.bcrate.util.crate.interaction.CrateInteractionQueue;
 import fr.bobinho.bcrate.util.crate.ux.CrateEditMenu;
 import fr.bobinho.bcrate.util.crate.ux.CratePrizeMenu;
 import fr.bobinho.bcrate.util.crate.ux.CrateShowMenu;
 import fr.bobinho.bcrate.util.crate.ux.CrateStructureMenu;
 import fr.bobinho.bcrate.util.key.Key;
 import fr.bobinho.bcrate.util.key.KeyManager;
-import fr.bobinho.bcrate.util.player.PlayerManager;
-import fr.bobinho.bcrate.util.player.notification.PlayerNotification;
-import fr.bobinho.bcrate.util.prize.Prize;
 import fr.bobinho.bcrate.util.prize.PrizeManager;
 import fr.bobinho.bcrate.util.prize.listener.PrizeListener;
 import org.bukkit.Material;
@@ -48,55 +45,12 @@ public class CrateListener {
 
         ProtocolLibrary.getProtocolManager().addPacketListener(new PacketAdapter(BCrateCore.getInstance(), PacketType.Play.Client.USE_ENTITY) {
             public void onPacketReceiving(PacketEvent event) {
-                CrateManager.isFromStructure(event.getPacket().getIntegers().read(0)).ifPresent(crate -> {
 
-                    //Interacts with the crate (left-click)
-                    if (event.getPacket().getEnumEntityUseActions().read(0).getAction() == EnumWrappers.EntityUseAction.ATTACK) {
-                        //Checks if the player has the key
-                        if (!PlayerManager.hasKey(event.getPlayer().getUniqueId(), crate)) {
-                            event.getPlayer().sendMessage(PlayerNotification.PLAYER_HAVENT_KEY.getNotification(new BPlaceHolder("%name%", crate.key().get().name().get())));
-                            return;
-                        }
-
-                        //Checks if the player has the key
-                        if (CrateManager.isEmpty(crate.name().get())) {
-                            event.getPlayer().sendMessage(CrateNotification.CRATE_IS_EMPTY.getNotification());
-                            return;
-                        }
-
-                        //Checks if the crate is already used
-                        if (!CrateManager.canPlay(crate.name().get())) {
-                            event.getPlayer().sendMessage(CrateNotification.CRATE_ALREADY_USED.getNotification());
-                            return;
-                        }
-
-                        //Checks if the player inventory is full
-                        if (!PlayerManager.canPlay(event.getPlayer().getUniqueId(), crate)) {
-                            event.getPlayer().sendMessage(PlayerNotification.PLAYER_INVENTORY_FULL.getNotification(new BPlaceHolder("%player%", event.getPlayer().getDisplayName())));
-                            return;
-                        }
-
-                        List<Prize> items = CrateManager.play(crate.name().get());
-
-                        //Checks if the player already have open a crate
-                        if (PlayerManager.isOpeningCrate(event.getPlayer().getUniqueId())) {
-                            event.getPlayer().sendMessage(PlayerNotification.PLAYER_ALREADY_USED_CRATE.getNotification());
-                            return;
-                        }
-
-                        //Launchs the crate
-                        crate.wait(event.getPlayer(), items);
-
-                        //Messages
-                        event.getPlayer().sendMessage(CrateNotification.CRATE_LAUNCH.getNotification(new BPlaceHolder("%name%", crate.name().get())));
-                    }
-
-                    //Interacts with the crate (right-click)
-                    else {
-                        BCrateCore.getInstance().getServer().getScheduler().scheduleSyncDelayedTask(BCrateCore.getInstance(), () ->
-                                CrateManager.openShowMenu(event.getPlayer(), crate.name().get()));
-                    }
-                });
+                //Only decodes the interaction, it is handled on the main thread
+                CrateManager.isFromStructure(event.getPacket().getIntegers().read(0)).ifPresent(crate ->
+                        CrateInteractionQueue.offer(new CrateInteraction(event.getPlayer().getUniqueId(), crate,
+                                event.getPacket().getEnumEntityUseActions().read(0).getAction() == EnumWrappers.EntityUseAction.ATTACK ?
+                                        CrateInteraction.Type.OPEN : CrateInteraction.Type.SHOW)));
             }
         });
 
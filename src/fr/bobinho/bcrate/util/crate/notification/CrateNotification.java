@@ -23,11 +23,21 @@ public enum CrateNotification implements BNotification {
     CRATE_NOT_REGISTERED,
     CRATE_DELETED,
     CRATE_WON,
+    CRATE_BULK_WON,
     CRATE_PRIZE_INFO,
     CRATE_ALREADY_USED,
+    CRATE_QUEUED,
+    CRATE_QUEUE_MOVED,
     CRATE_IS_EMPTY,
     CRATE_LAUNCH,
     CRATE_RELOADED,
+    CRATE_INFO,
+    CRATE_INFO_QUEUE,
+    CRATE_INFO_ENGINE,
+    CRATE_INFO_STATE,
+    CRATE_INFO_SUSPENDED,
+    CRATE_INFO_ANIMATED,
+    CRATE_INFO_SESSION,
     CRATE_PRIZE_INFO_GLOBAL,
     CRATE_STRUCTURE_MENU_NAME,
     CRATE_SKIN_CLOSE,
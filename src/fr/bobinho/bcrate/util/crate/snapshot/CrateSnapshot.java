@@ -0,0 +1,427 @@
+package fr.bobinho.bcrate.util.crate.snapshot;
+
+import fr.bobinho.bcrate.BCrateCore;
+import fr.bobinho.bcrate.api.file.BAtomicFile;
+import fr.bobinho.bcrate.api.location.BLocation;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import fr.bobinho.bcrate.util.crate.Crate;
+import fr.bobinho.bcrate.util.crate.edit.color.Color;
+import fr.bobinho.bcrate.util.crate.edit.size.Size;
+import fr.bobinho.bcrate.util.key.Key;
+import fr.bobinho.bcrate.util.key.KeyManager;
+import fr.bobinho.bcrate.util.prize.Prize;
+import fr.bobinho.bcrate.util.tag.Tag;
+import fr.bobinho.bcrate.util.tag.TagManager;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the crates, read in a single sequential read instead of parsing the crate file
+ * The crate file stays the human-editable export: the snapshot holds the checksum of the crate file it was taken with, and is ignored once the file changed
+ * <p>
+ * Format (version 1): magic, version, crate file checksum, crate count, then one length-prefixed record per crate
+ * Items are stored as their NBT bytes, serialized once and cached while the item does not change
+ */
+public final class CrateSnapshot {
+
+    /**
+     * Constants
+     */
+    private static final int MAGIC = 0x42435254;
+    private static final int VERSION = 1;
+
+    /**
+     * Fields
+     */
+    private static final Object writeLock = new Object();
+    private static Map<ItemStack, byte[]> blobs = new HashMap<>();
+    private static long generation;
+    private static long writtenGeneration;
+
+    /**
+     * Unitilizable constructor (utility class)
+     */
+    private CrateSnapshot() {
+    }
+
+    /**
+     * Computes the checksum of the crate file data
+     *
+     * @param data the crate file data
+     * @return the checksum
+     */
+    public static long checksum(@Nonnull byte[] data) {
+        BValidate.notNull(data);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        return crc.getValue();
+    }
+
+    /**
+     * Encodes the crates (main thread only)
+     *
+     * @param crates   the crates
+     * @param checksum the checksum of the crate file written with the same crates
+     * @return the snapshot
+     * @throws IOException if a crate could not be encoded
+     */
+    public static @Nonnull byte[] encode(@Nonnull Collection<Crate> crates, long checksum) throws IOException {
+        BValidate.notNull(crates);
+
+        //Only the blobs of the current items are kept
+        Map<ItemStack, byte[]> used = new HashMap<>();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(checksum);
+        output.writeInt(crates.size());
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        for (Crate crate : crates) {
+            recordBytes.reset();
+
+            record.writeUTF(crate.name().get());
+            record.writeUTF(crate.size().get().name());
+            record.writeUTF(BLocation.getAsString(crate.location().get()));
+            record.writeUTF(crate.color().get().name());
+            record.writeUTF(crate.key().get().name().get());
+            record.writeUTF(crate.direction().get());
+
+            List<ItemStack> skin = crate.skin().get();
+            record.writeInt(skin.size());
+            for (ItemStack item : skin) {
+                writeItem(record, item, used);
+            }
+
+            List<Prize> prizes = crate.prizes().get();
+            record.writeInt(prizes.size());
+            for (Prize prize : prizes) {
+                record.writeInt(prize.slot().get());
+                writeItem(record, prize.item().get(), used);
+                writeItem(record, prize.skin().get(), used);
+                record.writeDouble(prize.chance().get());
+                record.writeBoolean(prize.rarity().get());
+
+                List<Tag> tags = prize.tags().get();
+                record.writeInt(tags.size());
+                for (Tag tag : tags) {
+                    record.writeUTF(tag.name().get());
+                }
+            }
+
+            record.flush();
+            output.writeInt(recordBytes.size());
+            recordBytes.writeTo(output);
+        }
+
+        blobs = used;
+        output.flush();
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the crates
+     *
+     * @param data     the snapshot
+     * @param checksum the checksum of the current crate file
+     * @return the optional crates, empty if the snapshot is from another version or another crate file
+     * @throws IOException if the snapshot is corrupted or refers to unknown keys or tags
+     */
+    public static @Nonnull Optional<List<Entry>> decode(@Nonnull byte[] data, long checksum) throws IOException {
+        BValidate.notNull(data);
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readLong() != checksum) {
+            return Optional.empty();
+        }
+
+        int count = input.readInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] recordBytes = new byte[input.readInt()];
+            input.readFully(recordBytes);
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(recordBytes));
+            String name = record.readUTF();
+            Size size = Size.valueOf(record.readUTF());
+            String location = record.readUTF();
+            Color color = Color.valueOf(record.readUTF());
+            String keyName = record.readUTF();
+            Key key = KeyManager.get(keyName).orElseThrow(() -> new IOException("Unknown key " + keyName));
+            String direction = record.readUTF();
+
+            int skinSize = record.readInt();
+            List<ItemStack> skin = new ArrayList<>(skinSize);
+            for (int j = 0; j < skinSize; j++) {
+                skin.add(readItem(record));
+            }
+
+            int prizeSize = record.readInt();
+            List<Prize> prizes = new ArrayList<>(prizeSize);
+            for (int j = 0; j < prizeSize; j++) {
+                int slot = record.readInt();
+                ItemStack item = readItem(record);
+                ItemStack prizeSkin = readItem(record);
+                double chance = record.readDouble();
+                boolean rare = record.readBoolean();
+
+                int tagSize = record.readInt();
+                List<Tag> tags = new ArrayList<>(tagSize);
+                for (int k = 0; k < tagSize; k++) {
+                    String tagName = record.readUTF();
+                    tags.add(TagManager.get(tagName).orElseThrow(() -> new IOException("Unknown tag " + tagName)));
+                }
+
+                prizes.add(new Prize(item, prizeSkin, slot, chance, rare, tags));
+            }
+
+            entries.add(new Entry(name, size, location, color, key, skin, direction, prizes));
+        }
+
+        return Optional.of(entries);
+    }
+
+    /**
+     * Writes an item, serialized once while it does not change
+     *
+     * @param output the output
+     * @param item   the item
+     * @param used   the blobs used by this snapshot
+     * @throws IOException if the item could not be written
+     */
+    private static void writeItem(@Nonnull DataOutputStream output, ItemStack item, @Nonnull Map<ItemStack, byte[]> used) throws IOException {
+        BValidate.notNull(output);
+        BValidate.notNull(used);
+
+        //Air has no NBT form
+        if (item == null || item.getType() == Material.AIR) {
+            output.writeInt(-1);
+            return;
+        }
+
+        byte[] blob = used.get(item);
+        if (blob == null) {
+            blob = blobs.get(item);
+            if (blob == null) {
+                blob = item.serializeAsBytes();
+            }
+            used.put(item.clone(), blob);
+        }
+
+        output.writeInt(blob.length);
+        output.write(blob);
+    }
+
+    /**
+     * Reads an item, and keeps its blob for the next snapshot
+     *
+     * @param input the input
+     * @return the item
+     * @throws IOException if the item could not be read
+     */
+    private static @Nonnull ItemStack readItem(@Nonnull DataInputStream input) throws IOException {
+        BValidate.notNull(input);
+
+        int length = input.readInt();
+        if (length < 0) {
+            return new ItemStack(Material.AIR);
+        }
+
+        byte[] blob = new byte[length];
+        input.readFully(blob);
+
+        ItemStack item = ItemStack.deserializeBytes(blob);
+        blobs.put(item.clone(), blob);
+
+        return item;
+    }
+
+    /**
+     * Reads the snapshot file
+     *
+     * @param file the snapshot file
+     * @return the optional snapshot, empty if there is no snapshot file
+     * @throws IOException if the snapshot file could not be read
+     */
+    public static @Nonnull Optional<byte[]> read(@Nonnull File file) throws IOException {
+        BValidate.notNull(file);
+
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Gets the next snapshot generation (main thread only)
+     *
+     * @return the next snapshot generation
+     */
+    public static long nextGeneration() {
+        return ++generation;
+    }
+
+    /**
+     * Writes the snapshot file, unless a newer one has already been written (any thread)
+     *
+     * @param file               the snapshot file
+     * @param snapshotGeneration the snapshot generation
+     * @param data               the snapshot
+     */
+    public static void write(@Nonnull File file, long snapshotGeneration, @Nonnull byte[] data) {
+        BValidate.notNull(file);
+        BValidate.notNull(data);
+
+        synchronized (writeLock) {
+            if (snapshotGeneration <= writtenGeneration) {
+                return;
+            }
+
+            try {
+                BAtomicFile.write(file.toPath(), data);
+                writtenGeneration = snapshotGeneration;
+            } catch (IOException e) {
+                BCrateCore.getBLogger().error("Could not save the " + file.getName() + " file!", e);
+            }
+        }
+    }
+
+    /**
+     * Crate read from a snapshot
+     */
+    public static final class Entry {
+
+        /**
+         * Fields
+         */
+        private final String name;
+        private final Size size;
+        private final String location;
+        private final Color color;
+        private final Key key;
+        private final List<ItemStack> skin;
+        private final String direction;
+        private final List<Prize> prizes;
+
+        /**
+         * Creates a new entry
+         *
+         * @param name      the name
+         * @param size      the size
+         * @param location  the location (as string)
+         * @param color     the color
+         * @param key       the key
+         * @param skin      the skin
+         * @param direction the direction
+         * @param prizes    the prizes
+         */
+        private Entry(@Nonnull String name, @Nonnull Size size, @Nonnull String location, @Nonnull Color color, @Nonnull Key key,
+                      @Nonnull List<ItemStack> skin, @Nonnull String direction, @Nonnull List<Prize> prizes) {
+            this.name = name;
+            this.size = size;
+            this.location = location;
+            this.color = color;
+            this.key = key;
+            this.skin = skin;
+            this.direction = direction;
+            this.prizes = prizes;
+        }
+
+        /**
+         * Gets the name
+         *
+         * @return the name
+         */
+        public @Nonnull String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the size
+         *
+         * @return the size
+         */
+        public @Nonnull Size getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the location (as string)
+         *
+         * @return the location (as string)
+         */
+        public @Nonnull String getLocation() {
+            return location;
+        }
+
+        /**
+         * Gets the color
+         *
+         * @return the color
+         */
+        public @Nonnull Color getColor() {
+            return color;
+        }
+
+        /**
+         * Gets the key
+         *
+         * @return the key
+         */
+        public @Nonnull Key getKey() {
+            return key;
+        }
+
+        /**
+         * Gets the skin
+         *
+         * @return the skin
+         */
+        public @Nonnull List<ItemStack> getSkin() {
+            return skin;
+        }
+
+        /**
+         * Gets the direction
+         *
+         * @return the direction
+         */
+        public @Nonnull String getDirection() {
+            return direction;
+        }
+
+        /**
+         * Gets the prizes
+         *
+         * @return the prizes
+         */
+        public @Nonnull List<Prize> getPrizes() {
+            return prizes;
+        }
+
+    }
+
+}
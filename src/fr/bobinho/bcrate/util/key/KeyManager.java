@@ -36,6 +36,8 @@ public class KeyManager {
      * Registers the key manager
      */
     public static void register() {
+        configuration.setSerializer(KeyManager::serialize);
+        configuration.setSectionSerializer(KeyManager::serialize);
         load();
         KeyListener.registerEvents();
     }
@@ -44,7 +46,7 @@ public class KeyManager {
      * Unregisters the key manager
      */
     public static void unregister() {
-        save();
+        configuration.save();
     }
 
     /**
@@ -126,7 +128,7 @@ public class KeyManager {
         BValidate.notNull(item);
 
         keys.put(name, new Key(name, new BItemBuilder(item).name(BColor.color(name)).build(), keys.size()));
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -138,7 +140,7 @@ public class KeyManager {
         BValidate.notNull(name);
 
         get(name).ifPresent(key -> keys.remove(key.name().get()));
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -163,6 +165,19 @@ public class KeyManager {
         return keys.size() >= 54;
     }
 
+    /**
+     * Changes the slot
+     *
+     * @param key  the key
+     * @param slot the slot
+     */
+    public static void changeSlot(@Nonnull Key key, int slot) {
+        BValidate.notNull(key);
+
+        key.slot().set(slot);
+        configuration.markDirty(key.name().get());
+    }
+
     /**
      * Gives the key to the player
      *
@@ -174,7 +189,6 @@ public class KeyManager {
         BValidate.notNull(name);
 
         get(name).ifPresent(key -> player.getInventory().addItem(new BItemBuilder(key.item().get()).amount(amount).build()));
-        save();
     }
 
 
@@ -206,6 +220,7 @@ public class KeyManager {
      * Reloads all keys
      */
     public static void reload() {
+        configuration.save();
         keys.clear();
         configuration.initialize();
 
@@ -227,18 +242,36 @@ public class KeyManager {
     }
 
     /**
-     * Saves all keys
+     * Serializes all keys in the configuration
      */
-    public static void save() {
+    private static void serialize() {
         configuration.clear();
 
-        //Saves all keys
-        keys.values().forEach(key -> {
-            configuration.set(key.name().get() + ".item", key.item().get());
-            configuration.set(key.name().get() + ".slot", key.slot().get());
-        });
+        //Serializes all keys
+        keys.values().forEach(KeyManager::serialize);
+    }
 
-        configuration.save();
+    /**
+     * Serializes a key in the configuration, if it still exists
+     *
+     * @param name the name
+     */
+    private static void serialize(@Nonnull String name) {
+        BValidate.notNull(name);
+
+        get(name).ifPresent(KeyManager::serialize);
+    }
+
+    /**
+     * Serializes a key in the configuration
+     *
+     * @param key the key
+     */
+    private static void serialize(@Nonnull Key key) {
+        BValidate.notNull(key);
+
+        configuration.set(key.name().get() + ".item", key.item().get());
+        configuration.set(key.name().get() + ".slot", key.slot().get());
     }
 
 }
@@ -65,7 +65,7 @@ public class KeyListener {
                     ItemStack curs = event.getCursor();
 
                     if ((event.getCurrentItem() == null || event.getCurrentItem().getType() == Material.AIR) && event.getCursor() != null && event.getCursor().getType() != Material.AIR) {
-                        KeyManager.get(event.getCursor()).ifPresent(key -> key.slot().set(event.getSlot()));
+                        KeyManager.get(event.getCursor()).ifPresent(key -> KeyManager.changeSlot(key, event.getSlot()));
                     }
                 });
     }
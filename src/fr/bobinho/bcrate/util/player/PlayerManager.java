@@ -1,55 +1,142 @@
 package fr.bobinho.bcrate.util.player;
 
 import fr.bobinho.bcrate.BCrateCore;
+import fr.bobinho.bcrate.api.inventory.BInventoryFit;
 import fr.bobinho.bcrate.api.item.BItemBuilder;
+import fr.bobinho.bcrate.api.scheduler.BScheduler;
 import fr.bobinho.bcrate.api.setting.BSetting;
 import fr.bobinho.bcrate.api.validate.BValidate;
 import fr.bobinho.bcrate.util.crate.Crate;
 import fr.bobinho.bcrate.util.key.Key;
 import fr.bobinho.bcrate.util.key.KeyManager;
 import fr.bobinho.bcrate.util.player.listener.PlayerListener;
+import fr.bobinho.bcrate.util.player.storage.FilePlayerStorage;
+import fr.bobinho.bcrate.util.player.storage.PlayerJournal;
+import fr.bobinho.bcrate.util.player.storage.PlayerStorage;
+import fr.bobinho.bcrate.util.player.storage.SQLitePlayerStorage;
 import fr.bobinho.bcrate.util.prize.Prize;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * Manager class for players
+ * Only the players online, or who left recently, are loaded. Each player is loaded and saved on its own by the player storage thread
  */
 public class PlayerManager {
 
     /**
      * Fields
      */
-    private static final HashMap<UUID, BPlayer> players = new HashMap<>();
+    private static final Map<UUID, BPlayer> players = new ConcurrentHashMap<>();
+    private static final Set<UUID> dirtyPlayers = new HashSet<>();
+    private static final Set<UUID> failedPlayers = new HashSet<>();
+    private static final Map<UUID, BScheduler> unloads = new HashMap<>();
     private static final BSetting configuration = BCrateCore.getPlayerSetting();
+    private static PlayerStorage storage;
+    private static PlayerJournal journal;
+    private static ExecutorService storageThread;
+    private static BScheduler flusher;
+    private static BScheduler journalFlusher;
 
     /**
      * Registers the player manager
      */
     public static void register() {
-        load();
+        storage = createStorage();
+        storageThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "BCrate player storage"));
+        migrate();
+
+        //Recovers the key changes not saved by the last run before any player is loaded
+        if (BCrateCore.getConfigSetting().isBoolean("player-storage.journal").orElse(true)) {
+            journal = new PlayerJournal(new File(BCrateCore.getInstance().getDataFolder(), "players.journal"));
+            replay();
+
+            journalFlusher = BScheduler.syncScheduler().every(1);
+            journalFlusher.run(PlayerManager::flushJournal);
+        }
+
+        //Players already online (plugin reload)
+        Bukkit.getOnlinePlayers().forEach(player -> load(player.getUniqueId()));
         PlayerListener.registerEvents();
+
+        flusher = BScheduler.syncScheduler().every(BCrateCore.getConfigSetting().isInt("save-interval").orElse(100));
+        flusher.run(PlayerManager::flush);
+    }
+
+    /**
+     * Creates the player storage chosen in the config
+     *
+     * @return the player storage
+     */
+    private static @Nonnull PlayerStorage createStorage() {
+        File folder = BCrateCore.getInstance().getDataFolder();
+
+        if (BCrateCore.getConfigSetting().isString("player-storage.type").orElse("file").equalsIgnoreCase("sqlite")) {
+            try {
+                return new SQLitePlayerStorage(new File(folder, "players.db"));
+            } catch (SQLException e) {
+                BCrateCore.getBLogger().error("Could not open the player database, the player files are used instead!", e);
+            }
+        }
+
+        return new FilePlayerStorage(new File(folder, "players"));
     }
 
     /**
      * Unregisters the player manager
      */
     public static void unregister() {
-        save();
+        if (flusher != null) {
+            flusher.stop();
+            flusher = null;
+        }
+        if (journalFlusher != null) {
+            journalFlusher.stop();
+            journalFlusher = null;
+        }
+        unloads.values().forEach(BScheduler::stop);
+        unloads.clear();
+
+        //Writes the pending changes before closing the storage
+        flush();
+        storageThread.shutdown();
+        try {
+            if (!storageThread.awaitTermination(30, TimeUnit.SECONDS)) {
+                BCrateCore.getBLogger().warn("Some player data could not be saved in time!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        storage.close();
+
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                BCrateCore.getBLogger().error("Could not close the player journal!", e);
+            }
+            journal = null;
+        }
     }
 
     /**
-     * Gets a stream of all players
+     * Gets a stream of all loaded players
      *
-     * @return a stream of all players
+     * @return a stream of all loaded players
      */
     public static @Nonnull Stream<BPlayer> stream() {
         return players.values().stream();
@@ -80,16 +167,109 @@ public class PlayerManager {
     }
 
     /**
-     * Creates a new player
+     * Loads a player from the storage, blocking until it is loaded (any thread)
+     * A save of the player still pending is always written before the load
+     *
+     * @param uuid the uuid
+     * @return true if the player is loaded, false if the player could not be loaded
+     */
+    public static boolean load(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        if (players.containsKey(uuid)) {
+            return true;
+        }
+
+        try {
+            Map<String, Integer> record = storageThread.submit(() -> storage.load(uuid)).get();
+            Map<Key, Integer> keys = new HashMap<>();
+            record.forEach((name, amount) -> KeyManager.get(name).ifPresent(key -> keys.put(key, amount)));
+
+            players.putIfAbsent(uuid, new BPlayer(uuid, keys));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            BCrateCore.getBLogger().error("Could not load the data of the player " + uuid + "!", e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Unloads a player some time after the player left
+     *
+     * @param uuid the uuid
+     */
+    public static void scheduleUnload(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        cancelUnload(uuid);
+
+        BScheduler unload = BScheduler.syncScheduler().after(BCrateCore.getConfigSetting().isInt("player-storage.unload-delay").orElse(300), TimeUnit.SECONDS);
+        unloads.put(uuid, unload);
+        unload.run(() -> unload(uuid));
+    }
+
+    /**
+     * Cancels the pending unload of a player
      *
      * @param uuid the uuid
      */
-    public static void create(@Nonnull UUID uuid) {
+    public static void cancelUnload(@Nonnull UUID uuid) {
         BValidate.notNull(uuid);
 
-        players.put(uuid, new BPlayer(uuid));
-        KeyManager.stream().forEach(key -> configuration.isInt(uuid + "." + key.name().get()).ifPresent(amount -> addKey(uuid, key, amount)));
-        save();
+        Optional.ofNullable(unloads.remove(uuid)).ifPresent(BScheduler::stop);
+    }
+
+    /**
+     * Saves and unloads a player, unless the player came back
+     *
+     * @param uuid the uuid
+     */
+    private static void unload(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        unloads.remove(uuid);
+        if (Bukkit.getPlayer(uuid) != null) {
+            return;
+        }
+
+        //The save is queued before any later load of the player
+        if (dirtyPlayers.remove(uuid)) {
+            get(uuid).ifPresent(bPlayer -> save(Map.of(uuid, snapshot(bPlayer)), false));
+        }
+
+        //Runs after all the queued saves of the player, it is only evicted if none of them failed
+        storageThread.execute(() -> {
+            boolean saved = !failedPlayers.contains(uuid);
+
+            if (BCrateCore.getInstance().isEnabled()) {
+                BScheduler.syncScheduler().run(() -> evict(uuid, saved));
+            }
+        });
+    }
+
+    /**
+     * Evicts a saved player, unless the player came back or changed meanwhile
+     *
+     * @param uuid  the uuid
+     * @param saved true if all the saves of the player succeeded, false otherwise
+     */
+    private static void evict(@Nonnull UUID uuid, boolean saved) {
+        BValidate.notNull(uuid);
+
+        if (Bukkit.getPlayer(uuid) != null || unloads.containsKey(uuid)) {
+            return;
+        }
+
+        //The unsaved changes stay loaded, the flush saves them and the unload is tried again later
+        if (!saved || dirtyPlayers.contains(uuid)) {
+            scheduleUnload(uuid);
+            return;
+        }
+
+        players.remove(uuid);
     }
 
     /**
@@ -100,9 +280,40 @@ public class PlayerManager {
     public static void delete(@Nonnull UUID uuid) {
         BValidate.notNull(uuid);
 
+        cancelUnload(uuid);
+        dirtyPlayers.remove(uuid);
         get(uuid).ifPresent(bPlayer -> players.remove(bPlayer.uuid().get()));
     }
 
+    /**
+     * Marks a player as changed, it will be saved by the next flush
+     *
+     * @param uuid the uuid
+     */
+    private static void markDirty(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        if (players.containsKey(uuid)) {
+            dirtyPlayers.add(uuid);
+        }
+    }
+
+    /**
+     * Marks a player as changed and journals the new balance of the key
+     *
+     * @param uuid the uuid
+     * @param key  the key
+     */
+    private static void markDirty(@Nonnull UUID uuid, @Nonnull Key key) {
+        BValidate.notNull(uuid);
+        BValidate.notNull(key);
+
+        if (journal != null && players.containsKey(uuid)) {
+            journal.append(uuid, key.name().get(), getKeyNumberWithdrawable(uuid, key));
+        }
+        markDirty(uuid);
+    }
+
     /**
      * Gets the number of key withdrawable by the player
      *
@@ -137,23 +348,6 @@ public class PlayerManager {
                 .orElse(0);
     }
 
-    /**
-     * Clones the inventory
-     *
-     * @param inventory the inventory
-     * @return the cloned inventory
-     */
-    private static Inventory cloneInventory(@Nonnull Inventory inventory) {
-        BValidate.notNull(inventory);
-
-        Inventory copy = Bukkit.createInventory(null, 36);
-        for (int i = 0; i < 36; i++) {
-            copy.setItem(i, inventory.getItem(i) != null ? inventory.getItem(i).clone() : null);
-        }
-
-        return copy;
-    }
-
     /**
      * Checks if the player can withdraw key
      *
@@ -168,7 +362,7 @@ public class PlayerManager {
 
         //Checks if the player inventory with keys will be full
         return Optional.ofNullable(Bukkit.getPlayer(uuid))
-                .map(player -> cloneInventory(player.getInventory()).addItem(new BItemBuilder(key.item().get()).amount(amount).build()).isEmpty())
+                .map(player -> new BInventoryFit(player.getInventory()).canFit(new BItemBuilder(key.item().get()).amount(amount).build()))
                 .orElse(false);
     }
 
@@ -184,10 +378,27 @@ public class PlayerManager {
         BValidate.notNull(crate);
 
         return Optional.ofNullable(Bukkit.getPlayer(uuid))
-                .map(player -> IntStream.range(0, crate.prizes().size())
-                        .boxed()
-                        .allMatch(i -> IntStream.range(i, crate.prizes().size())
-                                .allMatch(j -> cloneInventory(player.getInventory()).addItem(new ItemStack[]{crate.prizes().get(i).item().get(), crate.prizes().get(j).item().get()}).isEmpty())))
+                .map(player -> new BInventoryFit(player.getInventory()).canFitAnyTwo(crate.prizes().stream()
+                        .map(prize -> prize.item().get())
+                        .toList()))
+                .orElse(false);
+    }
+
+    /**
+     * Checks if the player can receive all the prizes at once
+     *
+     * @param uuid   the uuid
+     * @param prizes the prizes
+     * @return true if the player can receive the prizes, false otherwise
+     */
+    public static boolean canReceive(@Nonnull UUID uuid, @Nonnull List<Prize> prizes) {
+        BValidate.notNull(uuid);
+        BValidate.notNull(prizes);
+
+        return Optional.ofNullable(Bukkit.getPlayer(uuid))
+                .map(player -> new BInventoryFit(player.getInventory()).canFitAll(prizes.stream()
+                        .map(prize -> prize.item().get())
+                        .toList()))
                 .orElse(false);
     }
 
@@ -228,12 +439,34 @@ public class PlayerManager {
         ).orElse(false);
     }
 
+    /**
+     * Uses keys, the virtual ones first in a single update, then the ones in the player inventory
+     *
+     * @param uuid   the uuid
+     * @param key    the key
+     * @param amount the amount
+     */
+    public static void useKeys(@Nonnull UUID uuid, @Nonnull Key key, int amount) {
+        BValidate.notNull(uuid);
+        BValidate.notNull(key);
+
+        int virtual = Math.min(amount, getKeyNumberWithdrawable(uuid, key));
+        if (virtual > 0) {
+            removeKey(uuid, key, virtual);
+        }
+
+        if (amount > virtual) {
+            Optional.ofNullable(Bukkit.getPlayer(uuid)).ifPresent(player ->
+                    player.getInventory().removeItem(new BItemBuilder(key.item().get()).amount(amount - virtual).build()));
+        }
+    }
+
     public static void removeKey(@Nonnull UUID uuid, @Nonnull Key key, int amount) {
         BValidate.notNull(uuid);
         BValidate.notNull(key);
 
         get(uuid).ifPresent(bPlayer -> bPlayer.keys().put(key, getKeyNumberWithdrawable(uuid, key) - amount));
-        save();
+        markDirty(uuid, key);
     }
 
     public static void addKey(@Nonnull UUID uuid, @Nonnull Key key, int amount) {
@@ -241,7 +474,7 @@ public class PlayerManager {
         BValidate.notNull(key);
 
         get(uuid).ifPresent(bPlayer -> bPlayer.keys().put(key, getKeyNumberWithdrawable(uuid, key) + amount));
-        save();
+        markDirty(uuid, key);
     }
 
     public static void withdrawKey(@Nonnull UUID uuid, @Nonnull Key key, int amount) {
@@ -251,7 +484,6 @@ public class PlayerManager {
         //Withdraws key
         Optional.ofNullable(Bukkit.getPlayer(uuid)).ifPresent(player -> IntStream.range(0, amount).forEach(i -> player.getInventory().addItem(key.item().get().clone())));
         removeKey(uuid, key, amount);
-        save();
     }
 
     public static void depositKey(@Nonnull UUID uuid, @Nonnull Key key, int amount) {
@@ -262,46 +494,172 @@ public class PlayerManager {
         Optional.ofNullable(Bukkit.getPlayer(uuid)).ifPresent(player ->
                 player.getInventory().removeItem(new BItemBuilder(key.item().get()).amount(amount).build()));
         addKey(uuid, key, amount);
-        save();
     }
 
     /**
      * Reloads all players
      */
     public static void reload() {
+        flush();
+        unloads.values().forEach(BScheduler::stop);
+        unloads.clear();
         players.clear();
-        configuration.initialize();
 
-        load();
+        Bukkit.getOnlinePlayers().forEach(player -> load(player.getUniqueId()));
     }
 
     /**
-     * Loads all players
+     * Saves the changed players asynchronously, in a single batch, then empties the journal (main thread only)
      */
-    public static void load() {
+    public static void flush() {
+        flushJournal();
+        if (dirtyPlayers.isEmpty()) {
+            return;
+        }
 
-        //Loads all players
-        configuration.getKeys().forEach(player -> {
-            Map<Key, Integer> keys = configuration.getConfigurationSection(player).stream()
-                    .map(key -> KeyManager.get(key).orElse(null))
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toMap(key -> key, key -> configuration.getInt(player + "." + key.name().get())));
+        Map<UUID, Map<String, Integer>> records = new HashMap<>();
+        dirtyPlayers.forEach(uuid -> get(uuid).ifPresent(bPlayer -> records.put(uuid, snapshot(bPlayer))));
+        dirtyPlayers.clear();
 
-            players.put(UUID.fromString(player), new BPlayer(UUID.fromString(player), keys));
+        save(records, true);
+    }
+
+    /**
+     * Saves the records of players asynchronously, in a single batch (main thread only)
+     * The journal is only emptied while no save has failed since, a failed player is retried by the next flush
+     *
+     * @param records  the records (uuid: key name: amount)
+     * @param truncate true to empty the journal once saved, the records must then hold all the changed players
+     */
+    private static void save(@Nonnull Map<UUID, Map<String, Integer>> records, boolean truncate) {
+        BValidate.notNull(records);
+
+        storageThread.execute(() -> {
+            try {
+                storage.saveAll(records);
+                failedPlayers.removeAll(records.keySet());
+            } catch (IOException e) {
+                BCrateCore.getBLogger().error("Could not save the data of " + records.size() + " players!", e);
+                failedPlayers.addAll(records.keySet());
+
+                //Retries on the next flush, the players stay loaded meanwhile
+                if (BCrateCore.getInstance().isEnabled()) {
+                    BScheduler.syncScheduler().run(() -> records.keySet().forEach(PlayerManager::markDirty));
+                }
+                return;
+            }
+
+            //The journaled changes are all in the storage now
+            if (truncate && journal != null && failedPlayers.isEmpty()) {
+                try {
+                    journal.clear();
+                } catch (IOException e) {
+                    BCrateCore.getBLogger().error("Could not empty the player journal!", e);
+                }
+            }
         });
     }
 
     /**
-     * Saves all players
+     * Appends the buffered key changes to the journal asynchronously (main thread only)
      */
-    public static void save() {
-        configuration.clear();
+    private static void flushJournal() {
+        if (journal == null) {
+            return;
+        }
 
-        //Saves all players
-        players.values().forEach(bPlayer -> KeyManager.stream().forEach(key ->
-                configuration.set(bPlayer.uuid().get() + "." + key.name().get(), getKeyNumberWithdrawable(bPlayer.uuid().get(), key))
-        ));
+        byte[] batch = journal.drain();
+        if (batch.length == 0) {
+            return;
+        }
 
+        PlayerJournal current = journal;
+        storageThread.execute(() -> {
+            try {
+                current.write(batch);
+            } catch (IOException e) {
+                BCrateCore.getBLogger().error("Could not write the player journal!", e);
+            }
+        });
+    }
+
+    /**
+     * Applies the key changes left in the journal by the last run to the storage (startup only)
+     */
+    private static void replay() {
+        try {
+            Map<UUID, Map<String, Integer>> changes = journal.read();
+            if (!changes.isEmpty()) {
+                BCrateCore.getBLogger().info("Recovering the key changes of " + changes.size() + " players from the player journal...");
+
+                Map<UUID, Map<String, Integer>> records = new HashMap<>();
+                for (Map.Entry<UUID, Map<String, Integer>> change : changes.entrySet()) {
+                    Map<String, Integer> record = new HashMap<>(storage.load(change.getKey()));
+                    record.putAll(change.getValue());
+                    records.put(change.getKey(), record);
+                }
+                storage.saveAll(records);
+            }
+
+            journal.clear();
+        } catch (IOException e) {
+            File failed = new File(journal.getFile().getParentFile(), journal.getFile().getName() + "." + System.currentTimeMillis() + ".failed");
+            BCrateCore.getBLogger().error("Could not recover the player journal, it is kept as " + failed.getName() + "!", e);
+
+            if (!journal.getFile().renameTo(failed)) {
+                BCrateCore.getBLogger().error("Could not keep the player journal!");
+            }
+        }
+
+        try {
+            journal.open();
+        } catch (IOException e) {
+            BCrateCore.getBLogger().error("Could not open the player journal, the key changes are only saved periodically!", e);
+        }
+    }
+
+    /**
+     * Snapshots the record of a player (main thread only)
+     *
+     * @param bPlayer the player
+     * @return the record (key name: amount)
+     */
+    private static @Nonnull Map<String, Integer> snapshot(@Nonnull BPlayer bPlayer) {
+        BValidate.notNull(bPlayer);
+
+        Map<String, Integer> record = new HashMap<>();
+        KeyManager.stream().forEach(key -> record.put(key.name().get(), getKeyNumberWithdrawable(bPlayer.uuid().get(), key)));
+
+        return record;
+    }
+
+    /**
+     * Moves the players of the former single player file to the storage, once
+     */
+    private static void migrate() {
+        Set<String> uuids = configuration.getKeys();
+        if (uuids.isEmpty()) {
+            return;
+        }
+
+        BCrateCore.getBLogger().info("Moving " + uuids.size() + " players from the player file to the player storage...");
+        Map<UUID, Map<String, Integer>> records = new HashMap<>();
+        try {
+            for (String player : uuids) {
+                Map<String, Integer> record = new HashMap<>();
+                configuration.getConfigurationSection(player).forEach(key -> configuration.isInt(player + "." + key).ifPresent(amount -> record.put(key, amount)));
+                records.put(UUID.fromString(player), record);
+            }
+
+            storage.saveAll(records);
+        } catch (IOException | IllegalArgumentException e) {
+            BCrateCore.getBLogger().error("Could not move the players to the player storage, the player file is kept!", e);
+            return;
+        }
+
+        //Empties the former file, so the players are not moved again
+        configuration.clear();
+        configuration.markDirty();
         configuration.save();
     }
 
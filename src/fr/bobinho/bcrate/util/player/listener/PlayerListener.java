@@ -1,11 +1,13 @@
 package fr.bobinho.bcrate.util.player.listener;
 
-import fr.bobinho.bcrate.api.entity.BEntity;
 import fr.bobinho.bcrate.api.event.BEvent;
 import fr.bobinho.bcrate.util.crate.CrateManager;
 import fr.bobinho.bcrate.util.player.PlayerManager;
+import fr.bobinho.bcrate.util.player.notification.PlayerNotification;
 import fr.bobinho.bcrate.util.prize.Prize;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerAttemptPickupItemEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -27,25 +29,43 @@ public class PlayerListener {
      * Registers player listeners
      */
     public static void registerEvents() {
+        onPreLogin();
         onJoin();
         onQuit();
         onPick();
         onInteractWithInventory();
     }
 
+    /**
+     * Listens player pre login
+     */
+    private static void onPreLogin() {
+        BEvent.registerEvent(AsyncPlayerPreLoginEvent.class, EventPriority.HIGHEST)
+                .filter(BEvent.Filter.IGNORE_DISALLOWED_PRE_LOGIN)
+                .consume(event -> {
+
+                    //Loads the player off the main thread, a player who could not be loaded would lose keys on save
+                    if (!PlayerManager.load(event.getUniqueId())) {
+                        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, PlayerNotification.PLAYER_NOT_LOADED.getNotification());
+                    }
+                });
+    }
+
     /**
      * Listens player join
      */
     private static void onJoin() {
         BEvent.registerEvent(PlayerJoinEvent.class)
-                .filter(event -> !PlayerManager.isRegistered(event.getPlayer().getUniqueId()))
                 .consume(event -> {
                     Optional.ofNullable(unrecoveredPrizes.get(event.getPlayer().getUniqueId())).ifPresent(prizes -> {
                         event.getPlayer().getInventory().addItem(prizes.stream().map(prize -> prize.item().get()).toArray(ItemStack[]::new));
                         unrecoveredPrizes.remove(event.getPlayer().getUniqueId());
                     });
-                    PlayerManager.create(event.getPlayer().getUniqueId());
-                    CrateManager.stream().forEach(crate -> crate.structure().stream().forEach(BEntity::render));
+
+                    //The player may have been unloaded between the pre login and the join
+                    PlayerManager.cancelUnload(event.getPlayer().getUniqueId());
+                    PlayerManager.load(event.getPlayer().getUniqueId());
+                    CrateManager.stream().forEach(crate -> crate.renderer().render());
                 });
     }
 
@@ -56,12 +76,24 @@ public class PlayerListener {
         BEvent.registerEvent(PlayerQuitEvent.class)
                 .filter(event -> PlayerManager.isRegistered(event.getPlayer().getUniqueId()))
                 .consume(event -> {
+
+                    //Only the prizes not given yet are recovered, the lid is still closing once they are given
                     CrateManager.stream()
-                            .filter(crate -> crate.metadata().has("open") || crate.metadata().has("waitOpen") && crate.metadata().getNonNull("player").equals(event.getPlayer()))
+                            .flatMap(crate -> crate.getSession(event.getPlayer()).stream())
+                            .filter(session -> !session.isRewarded())
                             .findFirst()
-                            .ifPresent(crate -> unrecoveredPrizes.put(event.getPlayer().getUniqueId(), crate.metadata().getNonNull("prizes")));
-                    CrateManager.stream().forEach(crate -> crate.structure().stream()
-                            .forEach(structure -> structure.getRenderer().removeShownViewers(event.getPlayer().getUniqueId())));
+                            .ifPresent(session -> unrecoveredPrizes.put(event.getPlayer().getUniqueId(), session.getPrizes()));
+
+                    //Instanced openings are played for the opener only, they stop without rewarding
+                    CrateManager.stream().forEach(crate -> crate.stopOpening(event.getPlayer()));
+                    CrateManager.stream().forEach(crate -> crate.renderer().getRenderer().removeShownViewers(event.getPlayer().getUniqueId()));
+
+                    //Leaves the waiting queues
+                    CrateManager.stream()
+                            .filter(crate -> crate.queue().remove(event.getPlayer().getUniqueId()))
+                            .forEach(crate -> PlayerManager.openCrate(event.getPlayer().getUniqueId(), false));
+
+                    PlayerManager.scheduleUnload(event.getPlayer().getUniqueId());
                 });
     }
 
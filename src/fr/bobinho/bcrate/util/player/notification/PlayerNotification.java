@@ -21,7 +21,8 @@ public enum PlayerNotification implements BNotification {
     PLAYER_RECEIVE_KEY,
     PLAYER_LOOSE_KEY,
     PLAYER_EMPTY_HAND,
-    PLAYER_ALREADY_USED_CRATE;
+    PLAYER_ALREADY_USED_CRATE,
+    PLAYER_NOT_LOADED;
 
     /**
      * {@inheritDoc}
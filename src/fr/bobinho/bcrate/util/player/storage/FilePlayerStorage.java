@@ -0,0 +1,105 @@
+package fr.bobinho.bcrate.util.player.storage;
+
+import fr.bobinho.bcrate.api.file.BAtomicFile;
+import fr.bobinho.bcrate.api.validate.BValidate;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Player storage writing one small file per player
+ * The files are spread in subdirectories named after the first characters of the uuid, so no directory grows too large
+ */
+public final class FilePlayerStorage implements PlayerStorage {
+
+    /**
+     * Fields
+     */
+    private final File folder;
+
+    /**
+     * Creates a new file player storage
+     *
+     * @param folder the root folder
+     */
+    public FilePlayerStorage(@Nonnull File folder) {
+        BValidate.notNull(folder);
+
+        this.folder = folder;
+    }
+
+    /**
+     * Gets the file of a player
+     *
+     * @param uuid the player uuid
+     * @return the file of the player
+     */
+    private @Nonnull File getFile(@Nonnull UUID uuid) {
+        BValidate.notNull(uuid);
+
+        //Random uuids are evenly spread over the 256 subdirectories
+        String name = uuid.toString();
+
+        return new File(new File(folder, name.substring(0, 2)), name + ".yml");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @Nonnull Map<String, Integer> load(@Nonnull UUID uuid) throws IOException {
+        BValidate.notNull(uuid);
+
+        File file = getFile(uuid);
+        Map<String, Integer> record = new HashMap<>();
+        if (!file.exists()) {
+            return record;
+        }
+
+        YamlConfiguration configuration = new YamlConfiguration();
+        try {
+            configuration.loadFromString(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+        } catch (InvalidConfigurationException e) {
+            throw new IOException("Invalid player file " + file.getName(), e);
+        }
+
+        for (String key : configuration.getKeys(false)) {
+            if (configuration.isInt(key)) {
+                record.put(key, configuration.getInt(key));
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull Map<String, Integer> record) throws IOException {
+        BValidate.notNull(uuid);
+        BValidate.notNull(record);
+
+        File file = getFile(uuid);
+
+        //No need to keep a file for a player without keys
+        if (record.values().stream().allMatch(amount -> amount == 0)) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+
+        YamlConfiguration configuration = new YamlConfiguration();
+        record.forEach(configuration::set);
+
+        BAtomicFile.write(file.toPath(), configuration.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,213 @@
+package fr.bobinho.bcrate.util.player.storage;
+
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the key balance changes, written between two saves of the player storage
+ * The changes are buffered on the main thread, then appended and synced in batches by the player storage thread
+ * Each entry holds the new balance rather than the delta, so replaying an entry already saved changes nothing
+ * <p>
+ * Entry: payload length, payload (uuid, key name, balance), CRC32 of the payload
+ */
+public final class PlayerJournal {
+
+    /**
+     * Fields
+     */
+    private final File file;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOutput = new DataOutputStream(pending);
+    private FileChannel channel;
+
+    /**
+     * Creates a new journal
+     *
+     * @param file the journal file
+     */
+    public PlayerJournal(@Nonnull File file) {
+        BValidate.notNull(file);
+
+        this.file = file;
+    }
+
+    /**
+     * Gets the journal file
+     *
+     * @return the journal file
+     */
+    public @Nonnull File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the changes left by the last run, up to the first torn or corrupted entry
+     *
+     * @return the changes (player uuid: key name: balance)
+     * @throws IOException if the journal could not be read
+     */
+    public @Nonnull Map<UUID, Map<String, Integer>> read() throws IOException {
+        Map<UUID, Map<String, Integer>> changes = new HashMap<>();
+        if (!file.exists()) {
+            return changes;
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+        try {
+            while (true) {
+                int length = input.readInt();
+                if (length <= 0 || length > input.available()) {
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+                if (input.readInt() != (int) checksum(payload)) {
+                    break;
+                }
+
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(payload));
+                UUID uuid = new UUID(entry.readLong(), entry.readLong());
+                String key = entry.readUTF();
+                int amount = entry.readInt();
+
+                changes.computeIfAbsent(uuid, k -> new HashMap<>()).put(key, amount);
+            }
+        } catch (EOFException ignored) {
+            //The last entry was being written
+        }
+
+        return changes;
+    }
+
+    /**
+     * Opens the journal for appending
+     *
+     * @throws IOException if the journal could not be opened
+     */
+    public void open() throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Buffers a new balance (main thread only)
+     *
+     * @param uuid   the player uuid
+     * @param key    the key name
+     * @param amount the new balance
+     */
+    public void append(@Nonnull UUID uuid, @Nonnull String key, int amount) {
+        BValidate.notNull(uuid);
+        BValidate.notNull(key);
+
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeLong(uuid.getMostSignificantBits());
+            payload.writeLong(uuid.getLeastSignificantBits());
+            payload.writeUTF(key);
+            payload.writeInt(amount);
+
+            byte[] data = payloadBytes.toByteArray();
+            pendingOutput.writeInt(data.length);
+            pendingOutput.write(data);
+            pendingOutput.writeInt((int) checksum(data));
+        } catch (IOException e) {
+            //Never thrown by an in memory stream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Takes the buffered entries (main thread only)
+     *
+     * @return the buffered entries, empty if there are none
+     */
+    public @Nonnull byte[] drain() {
+        byte[] batch = pending.toByteArray();
+        pending.reset();
+
+        return batch;
+    }
+
+    /**
+     * Appends a batch of entries and syncs it to the disk (player storage thread only)
+     *
+     * @param batch the batch
+     * @throws IOException if the batch could not be written
+     */
+    public void write(@Nonnull byte[] batch) throws IOException {
+        BValidate.notNull(batch);
+
+        if (batch.length == 0 || channel == null) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Empties the journal, once all its changes are saved in the player storage (player storage thread only)
+     *
+     * @throws IOException if the journal could not be emptied
+     */
+    public void clear() throws IOException {
+        if (channel == null) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    /**
+     * Closes the journal
+     *
+     * @throws IOException if the journal could not be closed
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Computes the checksum of an entry payload
+     *
+     * @param payload the payload
+     * @return the checksum
+     */
+    private static long checksum(@Nonnull byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        return crc.getValue();
+    }
+
+}
@@ -0,0 +1,51 @@
+package fr.bobinho.bcrate.util.player.storage;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Interface representing where the player records are persisted
+ * A record is the number of keys of each key name, each player is loaded and saved on its own
+ * The methods are blocking, they are only called from the player storage thread (or on startup)
+ */
+public interface PlayerStorage {
+
+    /**
+     * Loads the record of a player
+     *
+     * @param uuid the player uuid
+     * @return the record (key name: amount), empty if the player is unknown
+     * @throws IOException if the record could not be read
+     */
+    @Nonnull Map<String, Integer> load(@Nonnull UUID uuid) throws IOException;
+
+    /**
+     * Saves the record of a player
+     *
+     * @param uuid   the player uuid
+     * @param record the record (key name: amount)
+     * @throws IOException if the record could not be written
+     */
+    void save(@Nonnull UUID uuid, @Nonnull Map<String, Integer> record) throws IOException;
+
+    /**
+     * Saves the records of several players, the storages able to batch the writes override it
+     *
+     * @param records the records (player uuid: record)
+     * @throws IOException if a record could not be written
+     */
+    default void saveAll(@Nonnull Map<UUID, Map<String, Integer>> records) throws IOException {
+        for (Map.Entry<UUID, Map<String, Integer>> record : records.entrySet()) {
+            save(record.getKey(), record.getValue());
+        }
+    }
+
+    /**
+     * Closes the storage
+     */
+    default void close() {
+    }
+
+}
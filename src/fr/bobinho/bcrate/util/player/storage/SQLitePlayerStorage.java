@@ -0,0 +1,140 @@
+package fr.bobinho.bcrate.util.player.storage;
+
+import fr.bobinho.bcrate.BCrateCore;
+import fr.bobinho.bcrate.api.validate.BValidate;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Player storage keeping the key balances in an embedded SQLite database (the driver is shipped with the server)
+ * Each balance is a row, so a save is an upsert of the changed player rows in one transaction
+ */
+public final class SQLitePlayerStorage implements PlayerStorage {
+
+    /**
+     * Statements
+     */
+    private static final String CREATE = "CREATE TABLE IF NOT EXISTS player_keys (uuid TEXT NOT NULL, key TEXT NOT NULL, amount INTEGER NOT NULL, PRIMARY KEY (uuid, key))";
+    private static final String SELECT = "SELECT key, amount FROM player_keys WHERE uuid = ?";
+    private static final String UPSERT = "INSERT INTO player_keys (uuid, key, amount) VALUES (?, ?, ?) ON CONFLICT (uuid, key) DO UPDATE SET amount = excluded.amount";
+
+    /**
+     * Fields
+     */
+    private final Connection connection;
+
+    /**
+     * Creates a new SQLite player storage
+     *
+     * @param file the database file
+     * @throws SQLException if the database could not be opened
+     */
+    public SQLitePlayerStorage(@Nonnull File file) throws SQLException {
+        BValidate.notNull(file);
+
+        file.getParentFile().mkdirs();
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute(CREATE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @Nonnull Map<String, Integer> load(@Nonnull UUID uuid) throws IOException {
+        BValidate.notNull(uuid);
+
+        Map<String, Integer> record = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            statement.setString(1, uuid.toString());
+
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    record.put(result.getString(1), result.getInt(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+
+        return record;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull Map<String, Integer> record) throws IOException {
+        BValidate.notNull(uuid);
+        BValidate.notNull(record);
+
+        saveAll(Map.of(uuid, record));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveAll(@Nonnull Map<UUID, Map<String, Integer>> records) throws IOException {
+        BValidate.notNull(records);
+
+        try {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+                for (Map.Entry<UUID, Map<String, Integer>> record : records.entrySet()) {
+                    for (Map.Entry<String, Integer> key : record.getValue().entrySet()) {
+                        statement.setString(1, record.getKey().toString());
+                        statement.setString(2, key.getKey());
+                        statement.setInt(3, key.getValue());
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+
+            throw new IOException(e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            BCrateCore.getBLogger().error("Could not close the player database!", e);
+        }
+    }
+
+}
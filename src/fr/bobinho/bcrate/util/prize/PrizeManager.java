@@ -1,7 +1,9 @@
 package fr.bobinho.bcrate.util.prize;
 
+import fr.bobinho.bcrate.api.entity.type.BArmoredEntity;
 import fr.bobinho.bcrate.api.validate.BValidate;
 import fr.bobinho.bcrate.util.crate.Crate;
+import fr.bobinho.bcrate.util.crate.CrateManager;
 import fr.bobinho.bcrate.util.prize.listener.PrizeListener;
 import fr.bobinho.bcrate.util.tag.Tag;
 import org.bukkit.entity.Player;
@@ -56,6 +58,7 @@ public class PrizeManager {
         } else {
             prize.tags().add(tag);
         }
+        markDirty(prize);
     }
 
     /**
@@ -68,6 +71,12 @@ public class PrizeManager {
         BValidate.notNull(prize);
 
         prize.chance().set(chance);
+        markDirty(prize);
+
+        //Rebuilds the sampler of the crate on next draw
+        CrateManager.stream()
+                .filter(crate -> crate.prizes().contains(prize))
+                .forEach(Crate::invalidateSampler);
     }
 
     /**
@@ -79,6 +88,7 @@ public class PrizeManager {
         BValidate.notNull(prize);
 
         prize.rarity().set(!prize.rarity().get());
+        markDirty(prize);
     }
 
     /**
@@ -91,6 +101,21 @@ public class PrizeManager {
         BValidate.notNull(prize);
 
         prize.skin().set(skin);
+        BArmoredEntity.invalidateEquipments();
+        markDirty(prize);
+    }
+
+    /**
+     * Marks a prize as changed, only this prize will be serialized again
+     *
+     * @param prize the prize
+     */
+    private static void markDirty(@Nonnull Prize prize) {
+        BValidate.notNull(prize);
+
+        CrateManager.stream()
+                .filter(crate -> crate.prizes().contains(prize))
+                .forEach(crate -> CrateManager.markDirty(crate, prize.slot().get()));
     }
 
     /**
@@ -28,6 +28,8 @@ public class TagManager {
      * Registers the tag manager
      */
     public static void register() {
+        configuration.setSerializer(TagManager::serialize);
+        configuration.setSectionSerializer(TagManager::serialize);
         load();
     }
 
@@ -35,7 +37,7 @@ public class TagManager {
      * Unregisters the tag manager
      */
     public static void unregister() {
-        save();
+        configuration.save();
     }
 
     /**
@@ -107,7 +109,7 @@ public class TagManager {
         BValidate.notNull(description);
 
         tags.put(name, new Tag(name, BColor.color(description)));
-        save();
+        configuration.markDirty(name);
     }
 
     /**
@@ -119,13 +121,14 @@ public class TagManager {
         BValidate.notNull(name);
 
         get(name).ifPresent(tag -> tags.remove(tag.name().get()));
-        save();
+        configuration.markDirty(name);
     }
 
     /**
      * Reloads all tags
      */
     public static void reload() {
+        configuration.save();
         tags.clear();
         configuration.initialize();
 
@@ -146,15 +149,35 @@ public class TagManager {
     }
 
     /**
-     * Saves all tags
+     * Serializes all tags in the configuration
      */
-    public static void save() {
+    private static void serialize() {
         configuration.clear();
 
-        //Saves all tags
-        tags.values().forEach(tag -> configuration.set(tag.name().get() + ".description", tag.description().get()));
+        //Serializes all tags
+        tags.values().forEach(TagManager::serialize);
+    }
 
-        configuration.save();
+    /**
+     * Serializes a tag in the configuration, if it still exists
+     *
+     * @param name the name
+     */
+    private static void serialize(@Nonnull String name) {
+        BValidate.notNull(name);
+
+        get(name).ifPresent(TagManager::serialize);
+    }
+
+    /**
+     * Serializes a tag in the configuration
+     *
+     * @param tag the tag
+     */
+    private static void serialize(@Nonnull Tag tag) {
+        BValidate.notNull(tag);
+
+        configuration.set(tag.name().get() + ".description", tag.description().get());
     }
 
 }